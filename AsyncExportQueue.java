@@ -0,0 +1,382 @@
+package starClasses;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class compresses and writes table snapshots on a background thread so the macro thread can
+ * go back to the solver as soon as a snapshot is handed over. A snapshot is either a file the table
+ * was exported to on fast local disk or a table already in memory, and it ends up gzip compressed
+ * at its destination, written under a temporary name and renamed when complete.
+ *
+ * The queue holds at most a fixed number of snapshots. When it is full submit blocks until the
+ * writer has caught up, so a slow destination slows the run down instead of filling the memory.
+ * How far the writer is behind is available from the lag and stall metrics.
+ *
+ * @author cj8q5
+ *
+ */
+public class AsyncExportQueue
+{
+	private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+	private BlockingQueue<ExportJob> m_queue;
+	private Thread m_thread;
+	private boolean m_closed = false;
+
+	// Metrics, the counters are guarded by this object
+	private long m_submittedCount = 0;
+	private long m_completedCount = 0;
+	private long m_failedCount = 0;
+	private long m_bytesWritten = 0;
+	private long m_lastLagNanos = 0;
+	private long m_maxLagNanos = 0;
+	private long m_totalLagNanos = 0;
+	private long m_stallNanos = 0;
+	private volatile Exception m_lastError = null;
+
+	/**
+	 * @param capacity the number of snapshots waiting to be written before submit blocks
+	 */
+	public AsyncExportQueue(int capacity)
+	{
+		m_queue = new ArrayBlockingQueue<ExportJob>(capacity);
+		m_thread = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				writeJobs();
+			}
+		}, "AsyncExportQueue");
+		m_thread.setDaemon(true);
+		m_thread.start();
+	}
+
+	/** This method queues a staged table export. The staged file is deleted once the compressed copy
+	 * has been renamed into place, or once the write has failed, so it never outlives its job.
+	 *
+	 * @param stagedFile the file the table was exported to, best on local disk
+	 * @param destinationFile path of the gzip compressed copy
+	 */
+	public void submitFile(final String stagedFile, String destinationFile) throws InterruptedException
+	{
+		submit(new ExportJob(destinationFile)
+		{
+			void write(OutputStream out) throws IOException
+			{
+				InputStream in = new FileInputStream(stagedFile);
+				try
+				{
+					byte[] buffer = new byte[COPY_BUFFER_SIZE];
+					int read;
+					while ((read = in.read(buffer)) > 0)
+					{
+						out.write(buffer, 0, read);
+					}
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+
+			void release()
+			{
+				new File(stagedFile).delete();
+			}
+		});
+	}
+
+	/** This method queues a table held in memory, it is written as comma separated text.
+	 * The table must not be changed after it is submitted.
+	 *
+	 * @param table the snapshot of the table
+	 * @param destinationFile path of the gzip compressed file
+	 */
+	public void submitTable(final XyzTableColumns table, String destinationFile) throws InterruptedException
+	{
+		submit(new ExportJob(destinationFile)
+		{
+			void write(OutputStream out) throws IOException
+			{
+				BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), COPY_BUFFER_SIZE);
+				StringBuilder line = new StringBuilder(256);
+				for (int column = 0; column < table.getColumnCount(); column++)
+				{
+					line.append(column == 0 ? "\"" : ",\"").append(table.getName(column)).append('"');
+				}
+				writer.append(line).append('\n');
+				for (int row = 0; row < table.getRowCount(); row++)
+				{
+					line.setLength(0);
+					for (int column = 0; column < table.getColumnCount(); column++)
+					{
+						if (column > 0)
+						{
+							line.append(',');
+						}
+						line.append(table.getColumn(column)[row]);
+					}
+					writer.append(line).append('\n');
+				}
+				writer.flush();
+			}
+		});
+	}
+
+	private void submit(ExportJob job) throws InterruptedException
+	{
+		synchronized (this)
+		{
+			if (m_closed)
+			{
+				throw new IllegalStateException("The export queue has been closed");
+			}
+			m_submittedCount++;
+		}
+		long start = System.nanoTime();
+		try
+		{
+			m_queue.put(job);
+		}
+		catch (InterruptedException e)
+		{
+			synchronized (this)
+			{
+				m_submittedCount--;
+			}
+			throw e;
+		}
+		long stall = System.nanoTime() - start;
+		synchronized (this)
+		{
+			m_stallNanos += stall;
+		}
+	}
+
+	/** This method waits until every snapshot submitted so far has been written or has failed
+	 */
+	public synchronized void awaitIdle() throws InterruptedException
+	{
+		while (m_completedCount + m_failedCount < m_submittedCount)
+		{
+			wait();
+		}
+	}
+
+	/** This method writes the remaining snapshots and stops the background thread
+	 *
+	 * @throws IOException if any snapshot could not be written, carrying the last error
+	 */
+	public void close() throws IOException, InterruptedException
+	{
+		synchronized (this)
+		{
+			if (m_closed)
+			{
+				return;
+			}
+			m_closed = true;
+		}
+		m_queue.put(new ExportJob(null)
+		{
+			void write(OutputStream out)
+			{
+			}
+		});
+		m_thread.join();
+		if (m_lastError != null)
+		{
+			throw new IOException(getFailedCount() + " table snapshots could not be written", m_lastError);
+		}
+	}// end method close
+
+	// Returns the number of snapshots waiting in the queue
+	public int getQueueDepth()
+	{
+		return m_queue.size();
+	}
+
+	// Returns the number of snapshots submitted but not yet written, including the one being written
+	public synchronized long getPendingCount()
+	{
+		return m_submittedCount - m_completedCount - m_failedCount;
+	}
+
+	public synchronized long getCompletedCount()
+	{
+		return m_completedCount;
+	}
+
+	public synchronized long getFailedCount()
+	{
+		return m_failedCount;
+	}
+
+	// Returns the compressed bytes written so far
+	public synchronized long getBytesWritten()
+	{
+		return m_bytesWritten;
+	}
+
+	// Returns the time from submit to the end of the write of the last snapshot written, in milliseconds
+	public synchronized double getLastLagMillis()
+	{
+		return m_lastLagNanos/1.0e6;
+	}
+
+	public synchronized double getMaxLagMillis()
+	{
+		return m_maxLagNanos/1.0e6;
+	}
+
+	public synchronized double getAverageLagMillis()
+	{
+		return (m_completedCount == 0) ? 0.0 : m_totalLagNanos/1.0e6/m_completedCount;
+	}
+
+	// Returns the total time submit was blocked by a full queue, in milliseconds
+	public synchronized double getStallMillis()
+	{
+		return m_stallNanos/1.0e6;
+	}
+
+	// Returns the last error met while writing, or null if every write succeeded
+	public Exception getLastError()
+	{
+		return m_lastError;
+	}
+
+	private void writeJobs()
+	{
+		while (true)
+		{
+			ExportJob job;
+			try
+			{
+				job = m_queue.take();
+			}
+			catch (InterruptedException e)
+			{
+				releaseQueuedJobs();
+				return;
+			}
+			if (job.m_destination == null)
+			{
+				return;
+			}
+
+			long bytes = 0;
+			boolean written = false;
+			try
+			{
+				bytes = writeCompressed(job);
+				written = true;
+			}
+			catch (Exception e)
+			{
+				m_lastError = e;
+			}
+			finally
+			{
+				job.release();
+			}
+
+			long lag = System.nanoTime() - job.m_submitTime;
+			synchronized (this)
+			{
+				if (written)
+				{
+					m_completedCount++;
+					m_bytesWritten += bytes;
+					m_lastLagNanos = lag;
+					m_maxLagNanos = Math.max(m_maxLagNanos, lag);
+					m_totalLagNanos += lag;
+				}
+				else
+				{
+					m_failedCount++;
+				}
+				notifyAll();
+			}
+		}
+	}// end method writeJobs
+
+	// Frees the resources of the jobs left in the queue when the writer is stopped early
+	private void releaseQueuedJobs()
+	{
+		ExportJob job;
+		while ((job = m_queue.poll()) != null)
+		{
+			job.release();
+		}
+	}
+
+	// Writes a job under a temporary name and renames it, returns the compressed size
+	private static long writeCompressed(ExportJob job) throws IOException
+	{
+		File destination = new File(job.m_destination);
+		File partial = new File(job.m_destination + ".part");
+		OutputStream out = new GZIPOutputStream(new FileOutputStream(partial), COPY_BUFFER_SIZE);
+		boolean written = false;
+		try
+		{
+			job.write(out);
+			out.close();
+			written = true;
+		}
+		finally
+		{
+			// Any failure, checked or not, closes the stream and removes the partial file
+			if (!written)
+			{
+				try
+				{
+					out.close();
+				}
+				catch (IOException e)
+				{
+					// The failure of the write is the one reported
+				}
+				partial.delete();
+			}
+		}
+		destination.delete();
+		if (!partial.renameTo(destination))
+		{
+			throw new IOException("Could not rename " + partial + " to " + destination);
+		}
+		return destination.length();
+	}
+
+	/**
+	 * This class is one snapshot waiting to be written, a job without a destination stops the writer
+	 */
+	private abstract static class ExportJob
+	{
+		private String m_destination;
+		private long m_submitTime = System.nanoTime();
+
+		ExportJob(String destination)
+		{
+			m_destination = destination;
+		}
+
+		abstract void write(OutputStream out) throws IOException;
+
+		// Called once the job has been written or has failed, whatever the failure, to free what it holds
+		void release()
+		{
+		}
+	}
+
+}// end class AsyncExportQueue
@@ -0,0 +1,70 @@
+package starClasses;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class maps a binary case file written by BinaryCaseWriter. The records are read in place
+ * through BinaryCaseRecord views, so scanning every case of a file allocates nothing per case.
+ * 
+ * @author cj8q5
+ *
+ */
+public class BinaryCaseReader 
+{
+	private MappedByteBuffer m_buffer;
+	private int m_recordCount;
+	
+	public BinaryCaseReader(String fileToRead) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(fileToRead, "r");
+		try
+		{
+			FileChannel channel = file.getChannel();
+			if (channel.size() < BinaryCaseWriter.HEADER_SIZE)
+			{
+				throw new IOException(fileToRead + " is too short to be a binary case file");
+			}
+			m_buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			m_buffer.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		finally
+		{
+			file.close();
+		}
+		
+		if (m_buffer.getInt(0) != BinaryCaseWriter.MAGIC)
+		{
+			throw new IOException(fileToRead + " is not a binary case file");
+		}
+		if (m_buffer.getInt(4) != BinaryCaseWriter.VERSION || m_buffer.getInt(8) != BinaryCaseWriter.RECORD_SIZE)
+		{
+			throw new IOException(fileToRead + " has an unsupported version or record size");
+		}
+		long recordCount = m_buffer.getLong(BinaryCaseWriter.COUNT_OFFSET);
+		if (BinaryCaseWriter.HEADER_SIZE + recordCount*BinaryCaseWriter.RECORD_SIZE > m_buffer.capacity())
+		{
+			throw new IOException(fileToRead + " is truncated, the header lists " + recordCount + " cases");
+		}
+		m_recordCount = (int) recordCount;
+	}
+	
+	public int size()
+	{
+		return m_recordCount;
+	}
+	
+	/** This method creates a view that can be moved over the records of the file, one view is 
+	 * normally created per scan and reused for every record
+	 * 
+	 * @return a view positioned on the first record
+	 */
+	public BinaryCaseRecord createRecord()
+	{
+		return new BinaryCaseRecord(m_buffer, m_recordCount);
+	}
+	
+}// end class BinaryCaseReader
@@ -0,0 +1,100 @@
+package starClasses;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class is a view of one record of a mapped binary case file. Moving the view to another
+ * record only changes an offset, the values are read straight from the mapped buffer. The fields
+ * are numbered with the constants of MeshElementCaseTable and MeshSpacingCaseTable.
+ * 
+ * @author cj8q5
+ *
+ */
+public class BinaryCaseRecord 
+{
+	private ByteBuffer m_buffer;
+	private int m_recordCount;
+	private int m_index = 0;
+	private int m_offset = BinaryCaseWriter.HEADER_SIZE;
+	
+	BinaryCaseRecord(ByteBuffer buffer, int recordCount)
+	{
+		m_buffer = buffer;
+		m_recordCount = recordCount;
+	}
+	
+	/** This method moves the view to another record
+	 * 
+	 * @param index the case number in the file
+	 * @return this view, for chaining
+	 */
+	public BinaryCaseRecord moveTo(int index)
+	{
+		if (index < 0 || index >= m_recordCount)
+		{
+			throw new IndexOutOfBoundsException("Case " + index + " of " + m_recordCount);
+		}
+		m_index = index;
+		m_offset = BinaryCaseWriter.HEADER_SIZE + index*BinaryCaseWriter.RECORD_SIZE;
+		return this;
+	}
+	
+	public int getIndex()
+	{
+		return m_index;
+	}
+	
+	/** This method reads an element count of the record
+	 * 
+	 * @param field one of the MeshElementCaseTable field constants such as INLET_X
+	 * @return the element count
+	 */
+	public int getElementCount(int field)
+	{
+		return m_buffer.getInt(m_offset + BinaryCaseWriter.INT_OFFSET + 4*field);
+	}
+	
+	/** This method reads a spacing of the record
+	 * 
+	 * @param field one of the MeshSpacingCaseTable field constants such as INLET_SPACING_X
+	 * @return the spacing
+	 */
+	public double getSpacing(int field)
+	{
+		return m_buffer.getDouble(m_offset + 8*field);
+	}
+	
+	// Computes the cell count of the record straight from the mapped values
+	public long getCellCount()
+	{
+		return MeshDensityEstimator.cellCount(getElementCount(MeshElementCaseTable.EXTRUDE_CELL), getElementCount(MeshElementCaseTable.INLET_X), 
+				getElementCount(MeshElementCaseTable.LARGE_INLET_Y), getElementCount(MeshElementCaseTable.SMALL_INLET_Y), 
+				getElementCount(MeshElementCaseTable.PLATE_INLET_Y), getElementCount(MeshElementCaseTable.OUTLET_X), 
+				getElementCount(MeshElementCaseTable.LARGE_OUTLET_Y), getElementCount(MeshElementCaseTable.SMALL_OUTLET_Y), 
+				getElementCount(MeshElementCaseTable.PLATE_OUTLET_Y), getElementCount(MeshElementCaseTable.SM_CHANNEL_X), 
+				getElementCount(MeshElementCaseTable.SM_CHANNEL_Y), getElementCount(MeshElementCaseTable.LG_CHANNEL_X), 
+				getElementCount(MeshElementCaseTable.LG_CHANNEL_Y));
+	}
+	
+	// Creates a MeshElementData object holding the element counts of the record
+	public MeshElementData toMeshElementData()
+	{
+		return new MeshElementData(getElementCount(MeshElementCaseTable.EXTRUDE_CELL), getElementCount(MeshElementCaseTable.INLET_X), 
+				getElementCount(MeshElementCaseTable.LARGE_INLET_Y), getElementCount(MeshElementCaseTable.SMALL_INLET_Y), 
+				getElementCount(MeshElementCaseTable.PLATE_INLET_Y), getElementCount(MeshElementCaseTable.OUTLET_X), 
+				getElementCount(MeshElementCaseTable.LARGE_OUTLET_Y), getElementCount(MeshElementCaseTable.SMALL_OUTLET_Y), 
+				getElementCount(MeshElementCaseTable.PLATE_OUTLET_Y), getElementCount(MeshElementCaseTable.SM_CHANNEL_X), 
+				getElementCount(MeshElementCaseTable.SM_CHANNEL_Y), getElementCount(MeshElementCaseTable.LG_CHANNEL_X), 
+				getElementCount(MeshElementCaseTable.LG_CHANNEL_Y));
+	}
+	
+	// Creates a MeshSpacingData object holding the spacings of the record
+	public MeshSpacingData toMeshSpacingData()
+	{
+		return new MeshSpacingData(getSpacing(MeshSpacingCaseTable.INLET_SPACING_X), getSpacing(MeshSpacingCaseTable.INLET_SPACING_Y), 
+				getSpacing(MeshSpacingCaseTable.OUTLET_SPACING_X), getSpacing(MeshSpacingCaseTable.OUTLET_SPACING_Y), 
+				getSpacing(MeshSpacingCaseTable.SM_CHANNEL_SPACING_X), getSpacing(MeshSpacingCaseTable.SM_CHANNEL_SPACING_Y), 
+				getSpacing(MeshSpacingCaseTable.LG_CHANNEL_SPACING_X), getSpacing(MeshSpacingCaseTable.LG_CHANNEL_SPACING_Y));
+	}
+	
+}// end class BinaryCaseRecord
@@ -0,0 +1,187 @@
+package starClasses;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class writes mesh refinement cases to the binary case format read by BinaryCaseReader.
+ * The file is a 32 byte header followed by fixed 120 byte records, all little-endian:
+ * 
+ * header: int magic, int version, int record stride, int unused, long record count, long unused
+ * record: the MeshSpacingCaseTable.FIELD_COUNT spacings as doubles, then the
+ *         MeshElementCaseTable.FIELD_COUNT element counts as ints, then 4 bytes of padding
+ * 
+ * @author cj8q5
+ *
+ */
+public class BinaryCaseWriter 
+{
+	static final int MAGIC = 0x43424353;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final int RECORD_SIZE = 120;
+	static final int INT_OFFSET = 8*MeshSpacingCaseTable.FIELD_COUNT;
+	static final int COUNT_OFFSET = 16;
+	
+	// Records are collected in a buffer of this many records before each write
+	private static final int RECORDS_PER_WRITE = 512;
+	
+	private RandomAccessFile m_file;
+	private FileChannel m_channel;
+	private ByteBuffer m_buffer;
+	private long m_recordCount = 0;
+	
+	public BinaryCaseWriter(String fileToWrite) throws IOException
+	{
+		m_file = new RandomAccessFile(fileToWrite, "rw");
+		m_file.setLength(0);
+		m_channel = m_file.getChannel();
+		
+		m_buffer = ByteBuffer.allocate(RECORD_SIZE*RECORDS_PER_WRITE).order(ByteOrder.LITTLE_ENDIAN);
+		m_buffer.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0).putLong(0).putLong(0);
+	}
+	
+	/** This method adds one case to the file
+	 * 
+	 * @param mED the element counts of the case
+	 * @param mSD the spacings of the case
+	 */
+	public void write(MeshElementData mED, MeshSpacingData mSD) throws IOException
+	{
+		makeRoom();
+		m_buffer.putDouble(mSD.getInletSpacingX()).putDouble(mSD.getInletSpacingY());
+		m_buffer.putDouble(mSD.getOutletSpacingX()).putDouble(mSD.getOutletSpacingY());
+		m_buffer.putDouble(mSD.getSmChannelSpacingX()).putDouble(mSD.getSmChannelSpacingY());
+		m_buffer.putDouble(mSD.getLgChannelSpacingX()).putDouble(mSD.getLgChannelSpacingY());
+		
+		m_buffer.putInt(mED.getExtrudeCell()).putInt(mED.getInletX());
+		m_buffer.putInt(mED.getLargeInletY()).putInt(mED.getSmallInletY()).putInt(mED.getPlateInletY());
+		m_buffer.putInt(mED.getOutletX());
+		m_buffer.putInt(mED.getLargeOutletY()).putInt(mED.getSmallOutletY()).putInt(mED.getPlateOutletY());
+		m_buffer.putInt(mED.getSmChannelX()).putInt(mED.getSmChannelY());
+		m_buffer.putInt(mED.getLgChannelX()).putInt(mED.getLgChannelY());
+		m_buffer.putInt(0);
+		m_recordCount++;
+	}// end method write
+	
+	/** This method adds one row of a pair of case tables to the file without creating the data objects
+	 * 
+	 * @param elements the table holding the element counts
+	 * @param spacings the table holding the spacings
+	 * @param caseIndex the row written from both tables
+	 */
+	public void write(MeshElementCaseTable elements, MeshSpacingCaseTable spacings, int caseIndex) throws IOException
+	{
+		makeRoom();
+		for (int field = 0; field < MeshSpacingCaseTable.FIELD_COUNT; field++)
+		{
+			m_buffer.putDouble(spacings.getValue(caseIndex, field));
+		}
+		for (int field = 0; field < MeshElementCaseTable.FIELD_COUNT; field++)
+		{
+			m_buffer.putInt(elements.getValue(caseIndex, field));
+		}
+		m_buffer.putInt(0);
+		m_recordCount++;
+	}// end method write
+	
+	/** This method writes the remaining records and the record count and closes the file
+	 */
+	public void close() throws IOException
+	{
+		try
+		{
+			flush();
+			ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			count.putLong(m_recordCount).flip();
+			m_channel.write(count, COUNT_OFFSET);
+		}
+		finally
+		{
+			m_file.close();
+		}
+	}
+	
+	/** This method converts a mesh element case matrix and a mesh spacing case matrix with the same
+	 * number of rows into one binary case file
+	 * 
+	 * @param meshElementMatrix path of the mesh element case matrix read by CaseMatrixReader
+	 * @param meshSpacingMatrix path of the mesh spacing case matrix read by CaseMatrixReader
+	 * @param fileToWrite path of the binary case file
+	 */
+	public static void convertCaseMatrices(String meshElementMatrix, String meshSpacingMatrix, String fileToWrite) throws IOException
+	{
+		MeshElementCaseTable elements = CaseMatrixReader.readMeshElementCases(meshElementMatrix);
+		MeshSpacingCaseTable spacings = CaseMatrixReader.readMeshSpacingCases(meshSpacingMatrix);
+		if (elements.size() != spacings.size())
+		{
+			throw new IOException(meshElementMatrix + " has " + elements.size() + " cases but " + 
+					meshSpacingMatrix + " has " + spacings.size());
+		}
+		
+		BinaryCaseWriter writer = new BinaryCaseWriter(fileToWrite);
+		try
+		{
+			for (int i = 0; i < elements.size(); i++)
+			{
+				writer.write(elements, spacings, i);
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}// end method convertCaseMatrices
+	
+	/** This method converts pairs of the single case input files read by DataReader into one binary case file
+	 * 
+	 * @param meshElementFiles paths of the mesh element input files
+	 * @param meshSpacingFiles paths of the mesh spacing input files, one for each mesh element file
+	 * @param fileToWrite path of the binary case file
+	 */
+	public static void convertInputFiles(String[] meshElementFiles, String[] meshSpacingFiles, String fileToWrite) 
+			throws IOException, InputFileException
+	{
+		if (meshElementFiles.length != meshSpacingFiles.length)
+		{
+			throw new IllegalArgumentException(meshElementFiles.length + " mesh element files but " + 
+					meshSpacingFiles.length + " mesh spacing files");
+		}
+		
+		BinaryCaseWriter writer = new BinaryCaseWriter(fileToWrite);
+		try
+		{
+			for (int i = 0; i < meshElementFiles.length; i++)
+			{
+				writer.write(DataReader.parseMeshElementData(meshElementFiles[i]), 
+						DataReader.parseMeshSpacingData(meshSpacingFiles[i]));
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}// end method convertInputFiles
+	
+	private void makeRoom() throws IOException
+	{
+		if (m_buffer.remaining() < RECORD_SIZE)
+		{
+			flush();
+		}
+	}
+	
+	private void flush() throws IOException
+	{
+		m_buffer.flip();
+		while (m_buffer.hasRemaining())
+		{
+			m_channel.write(m_buffer);
+		}
+		m_buffer.clear();
+	}
+	
+}// end class BinaryCaseWriter
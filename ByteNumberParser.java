@@ -0,0 +1,243 @@
+package starClasses;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class parses ints and doubles straight from the bytes of a buffer so the
+ * input readers do not have to build a String for every value they read
+ *
+ * @author cj8q5
+ *
+ */
+final class ByteNumberParser
+{
+	// Every power of ten up to 1e22 is exact as a double
+	private static final double[] POWERS_OF_TEN =
+		{
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+		};
+
+	// Mantissas with this many digits or fewer are exact as a double
+	private static final int MAX_EXACT_DIGITS = 15;
+
+	private ByteNumberParser()
+	{
+	}
+
+	/** This method parses an int from the bytes between start and end, surrounding whitespace is ignored
+	 *
+	 * @param buffer the buffer holding the text
+	 * @param start index of the first byte of the value
+	 * @param end index one past the last byte of the value
+	 * @return the parsed value
+	 */
+	static int parseInt(ByteBuffer buffer, int start, int end)
+	{
+		int first = skipLeadingWhitespace(buffer, start, end);
+		int last = skipTrailingWhitespace(buffer, first, end);
+		if (first == last)
+		{
+			throw new NumberFormatException("For input string: \"\"");
+		}
+
+		int i = first;
+		boolean negative = false;
+		byte sign = buffer.get(i);
+		if (sign == '-' || sign == '+')
+		{
+			negative = (sign == '-');
+			i++;
+		}
+		if (i == last)
+		{
+			throw numberFormatException(buffer, first, last);
+		}
+
+		// Accumulating negatively so Integer.MIN_VALUE can be parsed
+		long value = 0;
+		for (; i < last; i++)
+		{
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9)
+			{
+				throw numberFormatException(buffer, first, last);
+			}
+			value = value*10 - digit;
+			if (value < Integer.MIN_VALUE)
+			{
+				throw numberFormatException(buffer, first, last);
+			}
+		}
+		if (!negative)
+		{
+			value = -value;
+			if (value > Integer.MAX_VALUE)
+			{
+				throw numberFormatException(buffer, first, last);
+			}
+		}
+		return (int) value;
+	}// end method parseInt
+
+	/** This method parses a double from the bytes between start and end, surrounding whitespace is ignored.
+	 * Plain decimal values with up to 15 significant digits are parsed directly, anything else
+	 * (long mantissas, large exponents, NaN, Infinity) falls back to Double.parseDouble
+	 *
+	 * @param buffer the buffer holding the text
+	 * @param start index of the first byte of the value
+	 * @param end index one past the last byte of the value
+	 * @return the parsed value
+	 */
+	static double parseDouble(ByteBuffer buffer, int start, int end)
+	{
+		int first = skipLeadingWhitespace(buffer, start, end);
+		int last = skipTrailingWhitespace(buffer, first, end);
+
+		int i = first;
+		boolean negative = false;
+		if (i < last && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+		{
+			negative = (buffer.get(i) == '-');
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int significantDigits = 0;
+		int decimalExponent = 0;
+		boolean seenPoint = false;
+		for (; i < last; i++)
+		{
+			byte b = buffer.get(i);
+			if (b >= '0' && b <= '9')
+			{
+				digits++;
+				if (mantissa == 0 && b == '0')
+				{
+					// Leading zeros only move the decimal point
+					if (seenPoint)
+					{
+						decimalExponent--;
+					}
+					continue;
+				}
+				if (++significantDigits > MAX_EXACT_DIGITS)
+				{
+					return fallback(buffer, first, last);
+				}
+				mantissa = mantissa*10 + (b - '0');
+				if (seenPoint)
+				{
+					decimalExponent--;
+				}
+			}
+			else if (b == '.' && !seenPoint)
+			{
+				seenPoint = true;
+			}
+			else
+			{
+				break;
+			}
+		}
+		if (digits == 0)
+		{
+			return fallback(buffer, first, last);
+		}
+
+		if (i < last)
+		{
+			byte b = buffer.get(i);
+			if (b != 'e' && b != 'E')
+			{
+				return fallback(buffer, first, last);
+			}
+			i++;
+			boolean negativeExponent = false;
+			if (i < last && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+			{
+				negativeExponent = (buffer.get(i) == '-');
+				i++;
+			}
+			if (i == last)
+			{
+				return fallback(buffer, first, last);
+			}
+			int exponent = 0;
+			for (; i < last; i++)
+			{
+				int digit = buffer.get(i) - '0';
+				if (digit < 0 || digit > 9 || exponent > 1000)
+				{
+					return fallback(buffer, first, last);
+				}
+				exponent = exponent*10 + digit;
+			}
+			decimalExponent += negativeExponent ? -exponent : exponent;
+		}
+
+		double value;
+		if (mantissa == 0)
+		{
+			value = 0.0;
+		}
+		else if (decimalExponent >= 0 && decimalExponent < POWERS_OF_TEN.length)
+		{
+			value = mantissa*POWERS_OF_TEN[decimalExponent];
+		}
+		else if (decimalExponent < 0 && -decimalExponent < POWERS_OF_TEN.length)
+		{
+			value = mantissa/POWERS_OF_TEN[-decimalExponent];
+		}
+		else
+		{
+			return fallback(buffer, first, last);
+		}
+		return negative ? -value : value;
+	}// end method parseDouble
+
+	static boolean isWhitespace(byte b)
+	{
+		return b >= 0 && b <= ' ';
+	}
+
+	private static int skipLeadingWhitespace(ByteBuffer buffer, int start, int end)
+	{
+		while (start < end && isWhitespace(buffer.get(start)))
+		{
+			start++;
+		}
+		return start;
+	}
+
+	private static int skipTrailingWhitespace(ByteBuffer buffer, int start, int end)
+	{
+		while (end > start && isWhitespace(buffer.get(end - 1)))
+		{
+			end--;
+		}
+		return end;
+	}
+
+	private static double fallback(ByteBuffer buffer, int start, int end)
+	{
+		return Double.parseDouble(toAsciiString(buffer, start, end));
+	}
+
+	private static NumberFormatException numberFormatException(ByteBuffer buffer, int start, int end)
+	{
+		return new NumberFormatException("For input string: \"" + toAsciiString(buffer, start, end) + "\"");
+	}
+
+	private static String toAsciiString(ByteBuffer buffer, int start, int end)
+	{
+		char[] chars = new char[end - start];
+		for (int i = start; i < end; i++)
+		{
+			chars[i - start] = (char) (buffer.get(i) & 0xff);
+		}
+		return new String(chars);
+	}
+
+}// end class ByteNumberParser
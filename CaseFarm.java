@@ -0,0 +1,169 @@
+package starClasses;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class splits a sweep across several independent worker processes on one node. Every worker
+ * reads the same binary case file and runs every workerCount-th case, so cases sorted by cell count
+ * are spread evenly. The cores of the node are divided into one contiguous block per worker, each
+ * worker is pinned to its block with taskset when it is available, and all workers append their
+ * results to one shared ResultJournal.
+ *
+ * The worker command is a template where {np}, {cores} and {worker} are replaced for each worker, e.g.
+ *
+ *     starccm+ -batch CaseFarmMacro.java -np {np} sweep.sim
+ *
+ * Everything else a worker needs is passed in the CaseFarmWorker environment variables.
+ *
+ * @author cj8q5
+ *
+ */
+public class CaseFarm
+{
+	private static final String[] TASKSET_LOCATIONS = {"/usr/bin/taskset", "/bin/taskset"};
+
+	private String m_casesFile;
+	private String m_journalFile;
+	private int m_workerCount;
+	private int m_iterations;
+	private int m_coreCount = Runtime.getRuntime().availableProcessors();
+	private boolean m_pinCores = true;
+	private String[] m_command = null;
+
+	/**
+	 * @param casesFile path of the binary case file written by BinaryCaseWriter
+	 * @param journalFile path of the shared result journal
+	 * @param workerCount the number of worker processes
+	 * @param iterations the number of iterations each case is run for
+	 */
+	public CaseFarm(String casesFile, String journalFile, int workerCount, int iterations)
+	{
+		m_casesFile = new File(casesFile).getAbsolutePath();
+		m_journalFile = new File(journalFile).getAbsolutePath();
+		m_workerCount = workerCount;
+		m_iterations = iterations;
+	}
+
+	/** This method sets the command started for every worker
+	 *
+	 * @param commandTemplate the command and its arguments, {np}, {cores} and {worker} are replaced for each worker
+	 */
+	public void setCommand(String[] commandTemplate)
+	{
+		m_command = commandTemplate;
+	}
+
+	/** This method makes the workers stub processes that run CaseFarmWorker with made-up results,
+	 * using the java and class path of the current process
+	 */
+	public void setStubMode()
+	{
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		m_command = new String[] {java, "-cp", System.getProperty("java.class.path"), CaseFarmWorker.class.getName()};
+	}
+
+	// Sets whether workers are pinned to their cores with taskset, true by default
+	public void setPinCores(boolean pinCores)
+	{
+		m_pinCores = pinCores;
+	}
+
+	// Sets the number of cores divided between the workers, all available cores by default
+	public void setCoreCount(int coreCount)
+	{
+		m_coreCount = coreCount;
+	}
+
+	/** This method starts every worker and waits for all of them to finish
+	 *
+	 * @param logDirectory directory receiving one output log per worker
+	 * @return the exit code of each worker
+	 */
+	public int[] run(String logDirectory) throws IOException, InterruptedException
+	{
+		if (m_command == null)
+		{
+			throw new IllegalStateException("Set a worker command or stub mode before running the farm");
+		}
+		new File(logDirectory).mkdirs();
+		String taskset = m_pinCores ? findTaskset() : null;
+		int coresPerWorker = Math.max(1, m_coreCount/m_workerCount);
+
+		List<Process> processes = new ArrayList<Process>();
+		try
+		{
+			for (int worker = 0; worker < m_workerCount; worker++)
+			{
+				// Workers beyond the core count share cores from the start again
+				int firstCore = (worker*coresPerWorker) % Math.max(m_coreCount, 1);
+				int lastCore = firstCore + coresPerWorker - 1;
+				String cores = (coresPerWorker == 1) ? Integer.toString(firstCore) : firstCore + "-" + lastCore;
+
+				List<String> command = new ArrayList<String>();
+				if (taskset != null)
+				{
+					command.add(taskset);
+					command.add("-c");
+					command.add(cores);
+				}
+				for (String argument : m_command)
+				{
+					command.add(argument.replace("{np}", Integer.toString(coresPerWorker))
+							.replace("{cores}", cores).replace("{worker}", Integer.toString(worker)));
+				}
+
+				ProcessBuilder builder = new ProcessBuilder(command);
+				Map<String, String> environment = builder.environment();
+				environment.put(CaseFarmWorker.CASES_VARIABLE, m_casesFile);
+				environment.put(CaseFarmWorker.JOURNAL_VARIABLE, m_journalFile);
+				environment.put(CaseFarmWorker.WORKER_VARIABLE, Integer.toString(worker));
+				environment.put(CaseFarmWorker.WORKER_COUNT_VARIABLE, Integer.toString(m_workerCount));
+				environment.put(CaseFarmWorker.ITERATIONS_VARIABLE, Integer.toString(m_iterations));
+				builder.redirectErrorStream(true);
+				builder.redirectOutput(new File(logDirectory, "worker" + worker + ".log"));
+				processes.add(builder.start());
+			}
+
+			int[] exitCodes = new int[m_workerCount];
+			for (int worker = 0; worker < m_workerCount; worker++)
+			{
+				exitCodes[worker] = processes.get(worker).waitFor();
+			}
+			return exitCodes;
+		}
+		finally
+		{
+			// Workers are never left running when the farm is interrupted or fails to start one
+			for (Process process : processes)
+			{
+				process.destroy();
+			}
+		}
+	}// end method run
+
+	/** This method loads the results every worker has written to the journal so far
+	 *
+	 * @return the results indexed by case number in the binary case file
+	 */
+	public SweepResultStore readResults() throws IOException
+	{
+		return new ResultJournal(m_journalFile).readResults(new BinaryCaseReader(m_casesFile).size());
+	}
+
+	private static String findTaskset()
+	{
+		for (String location : TASKSET_LOCATIONS)
+		{
+			if (new File(location).canExecute())
+			{
+				return location;
+			}
+		}
+		return null;
+	}
+
+}// end class CaseFarm
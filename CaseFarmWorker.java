@@ -0,0 +1,94 @@
+package starClasses;
+
+import java.io.IOException;
+
+/**
+ * This class is the worker side of CaseFarm. It runs its share of the cases in a binary case file,
+ * every workerCount-th case starting at its own worker number, and appends each result to the
+ * shared journal. Inside a StarCCM+ batch process a macro runs it with a SimRunner and the mesh
+ * applier of the model:
+ *
+ *     new CaseFarmWorker(new SimRunner(getActiveSimulation(), meshApplier)).runFromEnvironment();
+ *
+ * The main method runs the same loop with a RecordingCaseRunner, which makes up results from the
+ * cell count, and is what CaseFarm starts in stub mode so a farm can be tried on a plain Linux box.
+ *
+ * @author cj8q5
+ *
+ */
+public class CaseFarmWorker
+{
+	// Environment variables CaseFarm sets for every worker process
+	public static final String CASES_VARIABLE = "CASEFARM_CASES";
+	public static final String JOURNAL_VARIABLE = "CASEFARM_JOURNAL";
+	public static final String WORKER_VARIABLE = "CASEFARM_WORKER";
+	public static final String WORKER_COUNT_VARIABLE = "CASEFARM_WORKERS";
+	public static final String ITERATIONS_VARIABLE = "CASEFARM_ITERATIONS";
+
+	private CaseRunner m_runner;
+
+	public CaseFarmWorker(CaseRunner runner)
+	{
+		m_runner = runner;
+	}
+
+	/** This method runs the share of the cases given by the CaseFarm environment variables
+	 *
+	 * @return the number of cases run
+	 */
+	public int runFromEnvironment() throws IOException
+	{
+		return run(getVariable(CASES_VARIABLE), getVariable(JOURNAL_VARIABLE),
+				Integer.parseInt(getVariable(WORKER_VARIABLE)), Integer.parseInt(getVariable(WORKER_COUNT_VARIABLE)),
+				Integer.parseInt(getVariable(ITERATIONS_VARIABLE)));
+	}
+
+	/** This method runs every workerCount-th case of a binary case file starting at case number worker
+	 *
+	 * @param casesFile path of the binary case file written by BinaryCaseWriter
+	 * @param journalFile path of the result journal shared by all workers
+	 * @param worker the number of this worker, from 0 to workerCount - 1
+	 * @param workerCount the number of workers sharing the file
+	 * @param iterations the number of iterations each case is run for
+	 * @return the number of cases run
+	 */
+	public int run(String casesFile, String journalFile, int worker, int workerCount, int iterations) throws IOException
+	{
+		BinaryCaseReader reader = new BinaryCaseReader(casesFile);
+		BinaryCaseRecord record = reader.createRecord();
+		ResultJournal journal = new ResultJournal(journalFile);
+
+		int casesRun = 0;
+		for (int i = worker; i < reader.size(); i += workerCount)
+		{
+			record.moveTo(i);
+			MeshElementData mED = record.toMeshElementData();
+			MeshSpacingData mSD = record.toMeshSpacingData();
+
+			m_runner.prepareMesh(mED, mSD);
+			m_runner.runCase(mED, mSD, iterations);
+			journal.append(i, worker, mED);
+			casesRun++;
+		}
+		return casesRun;
+	}// end method run
+
+	private static String getVariable(String name)
+	{
+		String value = System.getenv(name);
+		if (value == null)
+		{
+			throw new IllegalStateException("The environment variable " + name + " is not set, start the worker through CaseFarm");
+		}
+		return value;
+	}
+
+	/** This method is the stub worker process started by CaseFarm in stub mode
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int casesRun = new CaseFarmWorker(new RecordingCaseRunner()).runFromEnvironment();
+		System.out.println("Worker " + System.getenv(WORKER_VARIABLE) + " ran " + casesRun + " cases");
+	}
+
+}// end class CaseFarmWorker
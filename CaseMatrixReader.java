@@ -0,0 +1,215 @@
+package starClasses;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class reads a case matrix file, one case per row, into a columnar case table in a single
+ * pass. Values on a row are separated by whitespace or commas and follow the constructor order of
+ * GeoData, MeshElementData or MeshSpacingData. Lines starting with # and blank lines are skipped.
+ *
+ * @author cj8q5
+ *
+ */
+public class CaseMatrixReader
+{
+	// Initial table capacity, the tables grow by doubling
+	private static final int INITIAL_CASES = 64;
+
+	private CaseMatrixReader()
+	{
+	}
+
+	/** This method reads a matrix of geometry cases
+	 *
+	 * @param fileToRead path of the case matrix with GeoCaseTable.FIELD_COUNT values per row
+	 * @return the table holding every case of the matrix
+	 * @throws IOException if the file cannot be read or a row has the wrong number of values
+	 */
+	public static GeoCaseTable readGeometryCases(String fileToRead) throws IOException
+	{
+		GeoCaseTable table = new GeoCaseTable(INITIAL_CASES);
+		MappedByteBuffer buffer = map(fileToRead);
+		int[] starts = new int[GeoCaseTable.FIELD_COUNT];
+		int[] ends = new int[GeoCaseTable.FIELD_COUNT];
+		double[] row = new double[GeoCaseTable.FIELD_COUNT];
+
+		int position = 0;
+		int lineNumber = 0;
+		while (position < buffer.limit())
+		{
+			lineNumber++;
+			int lineEnd = findLineEnd(buffer, position);
+			if (tokenize(buffer, position, lineEnd, starts, ends, fileToRead, lineNumber))
+			{
+				for (int field = 0; field < row.length; field++)
+				{
+					row[field] = parseDouble(buffer, starts[field], ends[field], fileToRead, lineNumber);
+				}
+				table.addCase(row);
+			}
+			position = lineEnd + 1;
+		}
+		return table;
+	}// end method readGeometryCases
+
+	/** This method reads a matrix of mesh element cases
+	 *
+	 * @param fileToRead path of the case matrix with MeshElementCaseTable.FIELD_COUNT values per row
+	 * @return the table holding every case of the matrix
+	 * @throws IOException if the file cannot be read or a row has the wrong number of values
+	 */
+	public static MeshElementCaseTable readMeshElementCases(String fileToRead) throws IOException
+	{
+		MeshElementCaseTable table = new MeshElementCaseTable(INITIAL_CASES);
+		MappedByteBuffer buffer = map(fileToRead);
+		int[] starts = new int[MeshElementCaseTable.FIELD_COUNT];
+		int[] ends = new int[MeshElementCaseTable.FIELD_COUNT];
+		int[] row = new int[MeshElementCaseTable.FIELD_COUNT];
+
+		int position = 0;
+		int lineNumber = 0;
+		while (position < buffer.limit())
+		{
+			lineNumber++;
+			int lineEnd = findLineEnd(buffer, position);
+			if (tokenize(buffer, position, lineEnd, starts, ends, fileToRead, lineNumber))
+			{
+				for (int field = 0; field < row.length; field++)
+				{
+					row[field] = parseInt(buffer, starts[field], ends[field], fileToRead, lineNumber);
+				}
+				table.addCase(row);
+			}
+			position = lineEnd + 1;
+		}
+		return table;
+	}// end method readMeshElementCases
+
+	/** This method reads a matrix of mesh spacing cases
+	 *
+	 * @param fileToRead path of the case matrix with MeshSpacingCaseTable.FIELD_COUNT values per row
+	 * @return the table holding every case of the matrix
+	 * @throws IOException if the file cannot be read or a row has the wrong number of values
+	 */
+	public static MeshSpacingCaseTable readMeshSpacingCases(String fileToRead) throws IOException
+	{
+		MeshSpacingCaseTable table = new MeshSpacingCaseTable(INITIAL_CASES);
+		MappedByteBuffer buffer = map(fileToRead);
+		int[] starts = new int[MeshSpacingCaseTable.FIELD_COUNT];
+		int[] ends = new int[MeshSpacingCaseTable.FIELD_COUNT];
+		double[] row = new double[MeshSpacingCaseTable.FIELD_COUNT];
+
+		int position = 0;
+		int lineNumber = 0;
+		while (position < buffer.limit())
+		{
+			lineNumber++;
+			int lineEnd = findLineEnd(buffer, position);
+			if (tokenize(buffer, position, lineEnd, starts, ends, fileToRead, lineNumber))
+			{
+				for (int field = 0; field < row.length; field++)
+				{
+					row[field] = parseDouble(buffer, starts[field], ends[field], fileToRead, lineNumber);
+				}
+				table.addCase(row);
+			}
+			position = lineEnd + 1;
+		}
+		return table;
+	}// end method readMeshSpacingCases
+
+	private static MappedByteBuffer map(String fileToRead) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(fileToRead, "r");
+		try
+		{
+			FileChannel channel = file.getChannel();
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+
+	private static int findLineEnd(MappedByteBuffer buffer, int position)
+	{
+		int limit = buffer.limit();
+		while (position < limit && buffer.get(position) != '\n')
+		{
+			position++;
+		}
+		return position;
+	}
+
+	/** This method splits a line into the value positions, returning false for comment and blank lines
+	 */
+	private static boolean tokenize(MappedByteBuffer buffer, int start, int end, int[] starts, int[] ends,
+			String fileName, int lineNumber) throws IOException
+	{
+		int count = 0;
+		int i = start;
+		while (i < end)
+		{
+			byte b = buffer.get(i);
+			if (ByteNumberParser.isWhitespace(b) || b == ',')
+			{
+				i++;
+				continue;
+			}
+			if (b == '#')
+			{
+				break;
+			}
+			int tokenStart = i;
+			while (i < end && !ByteNumberParser.isWhitespace(buffer.get(i)) && buffer.get(i) != ',')
+			{
+				i++;
+			}
+			if (count == starts.length)
+			{
+				throw new IOException(fileName + ":" + lineNumber + ": more than " + starts.length + " values on the row");
+			}
+			starts[count] = tokenStart;
+			ends[count] = i;
+			count++;
+		}
+		if (count == 0)
+		{
+			return false;
+		}
+		if (count != starts.length)
+		{
+			throw new IOException(fileName + ":" + lineNumber + ": expected " + starts.length + " values, found " + count);
+		}
+		return true;
+	}// end method tokenize
+
+	private static double parseDouble(MappedByteBuffer buffer, int start, int end, String fileName, int lineNumber) throws IOException
+	{
+		try
+		{
+			return ByteNumberParser.parseDouble(buffer, start, end);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IOException(fileName + ":" + lineNumber + ": " + e.getMessage());
+		}
+	}
+
+	private static int parseInt(MappedByteBuffer buffer, int start, int end, String fileName, int lineNumber) throws IOException
+	{
+		try
+		{
+			return ByteNumberParser.parseInt(buffer, start, end);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IOException(fileName + ":" + lineNumber + ": " + e.getMessage());
+		}
+	}
+
+}// end class CaseMatrixReader
@@ -0,0 +1,27 @@
+package starClasses;
+
+/**
+ * This interface is what SweepEngine needs from a simulation. SimRunner implements it for a
+ * StarCCM+ simulation, and a plain Java stand-in can implement it to exercise a sweep without one.
+ * 
+ * @author cj8q5
+ *
+ */
+public interface CaseRunner 
+{
+	/** This method builds the mesh for a case, it is skipped when the previous case had the same mesh
+	 * 
+	 * @param mED the element counts of the case
+	 * @param mSD the spacings of the case
+	 */
+	public void prepareMesh(MeshElementData mED, MeshSpacingData mSD);
+	
+	/** This method solves a case on the current mesh and stores the results in mED
+	 * 
+	 * @param mED the element counts of the case, receives the pressure results
+	 * @param mSD the spacings of the case
+	 * @param iterations the number of iterations to run
+	 */
+	public void runCase(MeshElementData mED, MeshSpacingData mSD, int iterations);
+	
+}// end interface CaseRunner
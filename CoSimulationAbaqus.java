@@ -30,12 +30,13 @@ public class CoSimulationAbaqus
 			m_abaqusCoSimulation = ((AbaqusCoSimulation) m_sim.get(CoSimulationManager.class).getObject("Abaqus Co-Simulation 1"));
 		}
 		
-		PrimitiveFieldFunction primitiveFieldFunction_0 = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction("StaticPressure"));
-	    PrimitiveFieldFunction primitiveFieldFunction_1 = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction("WallShearStress"));
+		FieldFunctionCache fieldFunctions = FieldFunctionCache.forSimulation(m_sim);
+		PrimitiveFieldFunction primitiveFieldFunction_0 = fieldFunctions.getPrimitiveFunction("StaticPressure");
+	    PrimitiveFieldFunction primitiveFieldFunction_1 = fieldFunctions.getPrimitiveFunction("WallShearStress");
 	    m_abaqusCoSimulation.setExportedFieldFunctions(new NeoObjectVector(new Object[] {primitiveFieldFunction_0, primitiveFieldFunction_1}));
 		
-	    PrimitiveFieldFunction primitiveFieldFunction_2 = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction("NodalDisplacement"));
-	    PrimitiveFieldFunction primitiveFieldFunction_3 = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction("Velocity"));
+	    PrimitiveFieldFunction primitiveFieldFunction_2 = fieldFunctions.getPrimitiveFunction("NodalDisplacement");
+	    PrimitiveFieldFunction primitiveFieldFunction_3 = fieldFunctions.getPrimitiveFunction("Velocity");
 	    m_abaqusCoSimulation.setImportedFieldFunctions(new NeoObjectVector(new Object[] {primitiveFieldFunction_2, primitiveFieldFunction_3}));
 	}
 	
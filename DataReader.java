@@ -1,9 +1,8 @@
 package starClasses;
 
-import java.io.BufferedReader;
-
-import java.io.FileReader;
-import java.util.Scanner;
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.List;
 
 import starClasses.GeoData;
 import javax.swing.JOptionPane;
@@ -17,100 +16,44 @@ public class DataReader
 	private MeshElementData meshElementData;
 	private MeshSpacingData meshSpacingData;
 	
+	// Errors are always collected, the dialog is only shown when a display is available
+	private boolean m_interactive = !GraphicsEnvironment.isHeadless();
+	private List<InputFileException> m_errors = new ArrayList<InputFileException>();
+	private ParsedInputCache m_cache = null;
+	
     public void readGeometryData(String fileToRead) 
     {
         try 
         {
-            // Read input file: fileToRead
-            FileReader file = new FileReader(fileToRead);
-            BufferedReader reader = new BufferedReader(file);
-			Scanner scanner = new Scanner(reader);
-
-            // Grabbing the geometry data for the plate
-			scanner.nextLine();
-			scanner.nextLine();
-        	double plateLength = scanner.nextDouble();
-        	double plateHeight = scanner.nextDouble();
-        	double plateWidth = scanner.nextDouble();
-            
-            // Grabbing the geometry data for the channels
-        	scanner.nextLine();
-        	scanner.nextLine();
-        	scanner.nextLine();
-        	scanner.nextLine();
-        	double smallChannelHeight = scanner.nextDouble();
-        	double largeChannelHeight = scanner.nextDouble();
-            
-            // Grabbing the geometry data for the plenums
-        	scanner.nextLine();
-        	scanner.nextLine();
-        	scanner.nextLine();
-        	scanner.nextLine();
-        	double inletLength = scanner.nextDouble();
-        	double outletLength = scanner.nextDouble();
-            
-            geoData = new GeoData(plateLength, plateHeight, plateWidth, 
-            		smallChannelHeight, largeChannelHeight, inletLength, outletLength);
+            geoData = (m_cache != null) ? m_cache.getGeoData(fileToRead) : parseGeometryData(fileToRead);
         }
         
-        catch (Exception e) 
+        catch (InputFileException e) 
         {
-            // Create a window displaying the error message.
-            JOptionPane.showMessageDialog(null, e.toString());
+            reportError(e);
         }
         
+        catch (RuntimeException e) 
+        {
+            reportError(new InputFileException(fileToRead, 0, 0, e.toString(), e));
+        }
     }
     
     public void readMeshElementData(String fileToRead)
     {
     	try 
         {
-            // Read input file: fileToRead
-            FileReader fr = new FileReader(fileToRead);
-            BufferedReader br = new BufferedReader(fr);
-			Scanner sc = new Scanner(br);
-
-            // Grabbing the mesh data for the X and Z direction for the inlet, outlet, and extruded direction
-            sc.nextLine();
-            int extrudeCell = sc.nextInt();
-        	int inletX = sc.nextInt();
-        	int outletX = sc.nextInt();
-            
-            // Grabbing the mesh data for the inlet plenum parts
-            sc.nextLine();
-            sc.nextLine();
-            int largeInletY = sc.nextInt();
-        	int smallInletY = sc.nextInt();
-        	int plateInletY = sc.nextInt();
-            
-            // Grabbing the mesh data for the outlet plenum parts
-            sc.nextLine();
-            sc.nextLine();
-            int largeOutletY = sc.nextInt();
-        	int smallOutletY = sc.nextInt();
-        	int plateOutletY = sc.nextInt();
-        	
-        	// Grabbing the mesh data for the small channel part
-        	sc.nextLine();
-        	sc.nextLine();
-        	int smChannelX = sc.nextInt();
-        	int smChannelY = sc.nextInt();
-        	
-        	// Grabbing the mesh data for the large channel part
-        	sc.nextLine();
-        	sc.nextLine();
-        	int lgChannelX = sc.nextInt();
-        	int lgChannelY = sc.nextInt();
-            
-            meshElementData = new MeshElementData(extrudeCell, inletX, largeInletY, smallInletY, plateInletY, 
-            		outletX, largeOutletY, smallOutletY, plateOutletY,
-            		smChannelX, smChannelY, lgChannelX, lgChannelY);
+            meshElementData = (m_cache != null) ? m_cache.getMeshElementData(fileToRead) : parseMeshElementData(fileToRead);
         }
         
-        catch (Exception e) 
+        catch (InputFileException e) 
         {
-            // Create a window displaying the error message.
-            JOptionPane.showMessageDialog(null, e.toString());
+            reportError(e);
+        }
+        
+        catch (RuntimeException e) 
+        {
+            reportError(new InputFileException(fileToRead, 0, 0, e.toString(), e));
         }
     }
     
@@ -118,43 +61,162 @@ public class DataReader
     {
     	try 
         {
-            // Read input file: fileToRead
-            FileReader fr = new FileReader(fileToRead);
-            BufferedReader br = new BufferedReader(fr);
-			Scanner sc = new Scanner(br);
-
-            // Grabbing the mesh data for the X and Z direction for the inlet, outlet, and extruded direction
-            sc.nextLine();
-            double inletSpacingX = sc.nextDouble();
-            double inletSpacingY = sc.nextDouble();
-            
-            // Grabbing the mesh data for the inlet plenum parts
-            sc.nextLine();
-            sc.nextLine();
-            double outletSpacingX = sc.nextDouble();
-            double outletSpacingY = sc.nextDouble();
-            
-            // Grabbing the mesh data for the outlet plenum parts
-            sc.nextLine();
-            sc.nextLine();
-            double smChannelSpacingX = sc.nextDouble();
-            double smChannelSpacingY = sc.nextDouble();
-        	
-        	// Grabbing the mesh data for the small channel part
-        	sc.nextLine();
-        	sc.nextLine();
-        	double lgChannelSpacingX = sc.nextDouble();
-        	double lgChannelSpacingY = sc.nextDouble();
-        	
-            meshSpacingData = new MeshSpacingData(inletSpacingX, inletSpacingY, outletSpacingX, outletSpacingY, smChannelSpacingX, 
-            		smChannelSpacingY, lgChannelSpacingX, lgChannelSpacingY);
+            meshSpacingData = (m_cache != null) ? m_cache.getMeshSpacingData(fileToRead) : parseMeshSpacingData(fileToRead);
         }
         
-        catch (Exception e) 
+        catch (InputFileException e) 
         {
-            // Create a window displaying the error message.
-            JOptionPane.showMessageDialog(null, e.toString());
+            reportError(e);
         }
+        
+        catch (RuntimeException e) 
+        {
+            reportError(new InputFileException(fileToRead, 0, 0, e.toString(), e));
+        }
+    }
+    
+    /** This method makes the read methods go through a parsed input cache, which can be shared between readers
+     * 
+     * @param cache the cache to use, or null to parse the text on every read
+     */
+    public void setCache(ParsedInputCache cache)
+    {
+    	m_cache = cache;
+    }
+    
+    /** This method chooses whether read errors also pop up a dialog, batch runs should pass false
+     * 
+     * @param interactive true to show a dialog for each error, false to only log and collect them
+     */
+    public void setInteractive(boolean interactive)
+    {
+    	m_interactive = interactive;
+    }
+    
+    // Returns every error met by the read methods of this reader
+    public List<InputFileException> getErrors()
+    {
+    	return m_errors;
+    }
+    
+    private void reportError(InputFileException e)
+    {
+    	m_errors.add(e);
+    	System.err.println(e.getMessage());
+    	if (m_interactive)
+    	{
+            // Create a window displaying the error message.
+            JOptionPane.showMessageDialog(null, e.getMessage());
+    	}
+    }
+    
+    // Parses a geometry input file, leaving error reporting to the caller
+    static GeoData parseGeometryData(String fileToRead) throws InputFileException
+    {
+        // Read input file: fileToRead
+		FixedLayoutReader scanner = new FixedLayoutReader(fileToRead);
+
+        // Grabbing the geometry data for the plate
+		scanner.nextLine();
+		scanner.nextLine();
+        double plateLength = scanner.nextDouble();
+        double plateHeight = scanner.nextDouble();
+        double plateWidth = scanner.nextDouble();
+        
+        // Grabbing the geometry data for the channels
+        scanner.nextLine();
+        scanner.nextLine();
+        scanner.nextLine();
+        scanner.nextLine();
+        double smallChannelHeight = scanner.nextDouble();
+        double largeChannelHeight = scanner.nextDouble();
+        
+        // Grabbing the geometry data for the plenums
+        scanner.nextLine();
+        scanner.nextLine();
+        scanner.nextLine();
+        scanner.nextLine();
+        double inletLength = scanner.nextDouble();
+        double outletLength = scanner.nextDouble();
+        
+        return new GeoData(plateLength, plateHeight, plateWidth, 
+        		smallChannelHeight, largeChannelHeight, inletLength, outletLength);
+    }
+    
+    // Parses a mesh element input file, leaving error reporting to the caller
+    static MeshElementData parseMeshElementData(String fileToRead) throws InputFileException
+    {
+        // Read input file: fileToRead
+		FixedLayoutReader sc = new FixedLayoutReader(fileToRead);
+
+        // Grabbing the mesh data for the X and Z direction for the inlet, outlet, and extruded direction
+        sc.nextLine();
+        int extrudeCell = sc.nextInt();
+        int inletX = sc.nextInt();
+        int outletX = sc.nextInt();
+        
+        // Grabbing the mesh data for the inlet plenum parts
+        sc.nextLine();
+        sc.nextLine();
+        int largeInletY = sc.nextInt();
+        int smallInletY = sc.nextInt();
+        int plateInletY = sc.nextInt();
+        
+        // Grabbing the mesh data for the outlet plenum parts
+        sc.nextLine();
+        sc.nextLine();
+        int largeOutletY = sc.nextInt();
+        int smallOutletY = sc.nextInt();
+        int plateOutletY = sc.nextInt();
+        
+        // Grabbing the mesh data for the small channel part
+        sc.nextLine();
+        sc.nextLine();
+        int smChannelX = sc.nextInt();
+        int smChannelY = sc.nextInt();
+        
+        // Grabbing the mesh data for the large channel part
+        sc.nextLine();
+        sc.nextLine();
+        int lgChannelX = sc.nextInt();
+        int lgChannelY = sc.nextInt();
+        
+        return new MeshElementData(extrudeCell, inletX, largeInletY, smallInletY, plateInletY, 
+        		outletX, largeOutletY, smallOutletY, plateOutletY,
+        		smChannelX, smChannelY, lgChannelX, lgChannelY);
+    }
+    
+    // Parses a mesh spacing input file, leaving error reporting to the caller
+    static MeshSpacingData parseMeshSpacingData(String fileToRead) throws InputFileException
+    {
+        // Read input file: fileToRead
+		FixedLayoutReader sc = new FixedLayoutReader(fileToRead);
+
+        // Grabbing the mesh data for the X and Z direction for the inlet, outlet, and extruded direction
+        sc.nextLine();
+        double inletSpacingX = sc.nextDouble();
+        double inletSpacingY = sc.nextDouble();
+        
+        // Grabbing the mesh data for the inlet plenum parts
+        sc.nextLine();
+        sc.nextLine();
+        double outletSpacingX = sc.nextDouble();
+        double outletSpacingY = sc.nextDouble();
+        
+        // Grabbing the mesh data for the outlet plenum parts
+        sc.nextLine();
+        sc.nextLine();
+        double smChannelSpacingX = sc.nextDouble();
+        double smChannelSpacingY = sc.nextDouble();
+        
+        // Grabbing the mesh data for the small channel part
+        sc.nextLine();
+        sc.nextLine();
+        double lgChannelSpacingX = sc.nextDouble();
+        double lgChannelSpacingY = sc.nextDouble();
+        
+        return new MeshSpacingData(inletSpacingX, inletSpacingY, outletSpacingX, outletSpacingY, smChannelSpacingX, 
+        		smChannelSpacingY, lgChannelSpacingX, lgChannelSpacingY);
     }
 
     // Returns the object GeoData that contains the geometry parameters
@@ -0,0 +1,178 @@
+package starClasses;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import star.common.Simulation;
+import star.meshing.MeshOperationManager;
+import star.sweptmesher.DirectedMeshOperation;
+import star.sweptmesher.DirectedPatchSourceMesh;
+import star.sweptmesher.DirectedSideMeshDistribution;
+import star.sweptmesher.PatchCurve;
+
+/**
+ * This class puts the element counts and spacings of a case into the directed mesh operations of
+ * the model. Each patch curve is tied to one element count field of MeshElementCaseTable and
+ * optionally one spacing field of MeshSpacingCaseTable, and each volume distribution takes the
+ * extruded cell count. The operations, patch meshes and curves are looked up once when they are
+ * added, so applying a case only redefines the curves.
+ *
+ * Usage, with the names of the directed mesh of the model:
+ *
+ *     DirectedMeshApplier applier = new DirectedMeshApplier(sim);
+ *     applier.addPatchCurve("Directed Mesh", "Patch Mesh", "PatchCurve 0", MeshElementCaseTable.INLET_X, MeshSpacingCaseTable.INLET_SPACING_X);
+ *     applier.addVolumeDistribution("Directed Mesh", "Volume Distribution");
+ *     SimRunner runner = new SimRunner(sim, applier);
+ *
+ * @author cj8q5
+ *
+ */
+public class DirectedMeshApplier implements MeshSettingsApplier
+{
+	private Simulation m_sim;
+	private List<CurveSetting> m_curves = new ArrayList<CurveSetting>();
+	private List<DirectedSideMeshDistribution> m_distributions = new ArrayList<DirectedSideMeshDistribution>();
+
+	public DirectedMeshApplier(Simulation sim)
+	{
+		m_sim = sim;
+	}
+
+	/** This method ties a patch curve to the fields of a case
+	 *
+	 * @param operationName the name of the directed mesh operation
+	 * @param patchMeshName the name of the patch mesh of the operation, e.g. "Patch Mesh"
+	 * @param patchCurveName the name of the patch curve, e.g. "PatchCurve 0"
+	 * @param elementField the element count field of the curve, a MeshElementCaseTable constant such as INLET_X
+	 * @param spacingField the spacing field of the curve, a MeshSpacingCaseTable constant such as INLET_SPACING_X,
+	 * 		or -1 to spread the cells evenly
+	 */
+	public void addPatchCurve(String operationName, String patchMeshName, String patchCurveName, int elementField, int spacingField)
+	{
+		if (elementField < 0 || elementField >= MeshElementCaseTable.FIELD_COUNT)
+		{
+			throw new IllegalArgumentException("Unknown element count field " + elementField);
+		}
+		if (spacingField < -1 || spacingField >= MeshSpacingCaseTable.FIELD_COUNT)
+		{
+			throw new IllegalArgumentException("Unknown spacing field " + spacingField);
+		}
+		DirectedPatchSourceMesh patchMesh = ((DirectedPatchSourceMesh) getOperation(operationName)
+				.getGuidedSurfaceMeshBaseManager().getObject(patchMeshName));
+		PatchCurve patchCurve = ((PatchCurve) patchMesh.getPatchCurveManager().getObject(patchCurveName));
+		m_curves.add(new CurveSetting(patchMesh, patchCurve, elementField, spacingField));
+	}
+
+	/** This method makes a volume distribution take the extruded cell count of each case
+	 *
+	 * @param operationName the name of the directed mesh operation
+	 * @param distributionName the name of the distribution, e.g. "Volume Distribution"
+	 */
+	public void addVolumeDistribution(String operationName, String distributionName)
+	{
+		m_distributions.add((DirectedSideMeshDistribution) getOperation(operationName)
+				.getGuidedSurfaceMeshBaseManager().getObject(distributionName));
+	}
+
+	public void applyMeshSettings(MeshElementData mED, MeshSpacingData mSD)
+	{
+		if (m_curves.isEmpty() && m_distributions.isEmpty())
+		{
+			throw new IllegalStateException("No patch curves or volume distributions have been added");
+		}
+		Set<DirectedPatchSourceMesh> editedMeshes = new LinkedHashSet<DirectedPatchSourceMesh>();
+		for (CurveSetting curve : m_curves)
+		{
+			if (editedMeshes.add(curve.m_patchMesh))
+			{
+				curve.m_patchMesh.rebuildPatchPolygonSourceMesh(true);
+			}
+			int cells = getElementField(mED, curve.m_elementField);
+			if (curve.m_spacingField < 0)
+			{
+				curve.m_patchMesh.defineMeshPatchCurve(curve.m_patchCurve, curve.m_patchCurve.getStretchingFunction(),
+						0.0, 0.0, cells, false, false);
+			}
+			else
+			{
+				double spacing = getSpacingField(mSD, curve.m_spacingField);
+				curve.m_patchMesh.defineMeshPatchCurve(curve.m_patchCurve, curve.m_patchCurve.getStretchingFunction(),
+						spacing, spacing, cells, false, true);
+			}
+		}
+		for (DirectedPatchSourceMesh patchMesh : editedMeshes)
+		{
+			patchMesh.stopEditPatchOperation();
+		}
+		for (DirectedSideMeshDistribution distribution : m_distributions)
+		{
+			distribution.setNumLayers(mED.getExtrudeCell());
+		}
+	}// end method applyMeshSettings
+
+	private DirectedMeshOperation getOperation(String operationName)
+	{
+		return ((DirectedMeshOperation) m_sim.get(MeshOperationManager.class).getObject(operationName));
+	}
+
+	// Returns one element count of a case by its MeshElementCaseTable field number
+	static int getElementField(MeshElementData mED, int field)
+	{
+		switch (field)
+		{
+			case MeshElementCaseTable.EXTRUDE_CELL: return mED.getExtrudeCell();
+			case MeshElementCaseTable.INLET_X: return mED.getInletX();
+			case MeshElementCaseTable.LARGE_INLET_Y: return mED.getLargeInletY();
+			case MeshElementCaseTable.SMALL_INLET_Y: return mED.getSmallInletY();
+			case MeshElementCaseTable.PLATE_INLET_Y: return mED.getPlateInletY();
+			case MeshElementCaseTable.OUTLET_X: return mED.getOutletX();
+			case MeshElementCaseTable.LARGE_OUTLET_Y: return mED.getLargeOutletY();
+			case MeshElementCaseTable.SMALL_OUTLET_Y: return mED.getSmallOutletY();
+			case MeshElementCaseTable.PLATE_OUTLET_Y: return mED.getPlateOutletY();
+			case MeshElementCaseTable.SM_CHANNEL_X: return mED.getSmChannelX();
+			case MeshElementCaseTable.SM_CHANNEL_Y: return mED.getSmChannelY();
+			case MeshElementCaseTable.LG_CHANNEL_X: return mED.getLgChannelX();
+			case MeshElementCaseTable.LG_CHANNEL_Y: return mED.getLgChannelY();
+			default: throw new IllegalArgumentException("Unknown element count field " + field);
+		}
+	}
+
+	// Returns one spacing of a case by its MeshSpacingCaseTable field number
+	static double getSpacingField(MeshSpacingData mSD, int field)
+	{
+		switch (field)
+		{
+			case MeshSpacingCaseTable.INLET_SPACING_X: return mSD.getInletSpacingX();
+			case MeshSpacingCaseTable.INLET_SPACING_Y: return mSD.getInletSpacingY();
+			case MeshSpacingCaseTable.OUTLET_SPACING_X: return mSD.getOutletSpacingX();
+			case MeshSpacingCaseTable.OUTLET_SPACING_Y: return mSD.getOutletSpacingY();
+			case MeshSpacingCaseTable.SM_CHANNEL_SPACING_X: return mSD.getSmChannelSpacingX();
+			case MeshSpacingCaseTable.SM_CHANNEL_SPACING_Y: return mSD.getSmChannelSpacingY();
+			case MeshSpacingCaseTable.LG_CHANNEL_SPACING_X: return mSD.getLgChannelSpacingX();
+			case MeshSpacingCaseTable.LG_CHANNEL_SPACING_Y: return mSD.getLgChannelSpacingY();
+			default: throw new IllegalArgumentException("Unknown spacing field " + field);
+		}
+	}
+
+	/**
+	 * This class is one patch curve and the fields of a case it takes its settings from
+	 */
+	private static class CurveSetting
+	{
+		private DirectedPatchSourceMesh m_patchMesh;
+		private PatchCurve m_patchCurve;
+		private int m_elementField;
+		private int m_spacingField;
+
+		CurveSetting(DirectedPatchSourceMesh patchMesh, PatchCurve patchCurve, int elementField, int spacingField)
+		{
+			m_patchMesh = patchMesh;
+			m_patchCurve = patchCurve;
+			m_elementField = elementField;
+			m_spacingField = spacingField;
+		}
+	}
+
+}// end class DirectedMeshApplier
@@ -0,0 +1,195 @@
+package starClasses;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * This class thins out field data sampled at scattered points, such as the rows of an XYZ table
+ * export, before it is stored for every step of a run. The points are binned into a grid of cubic
+ * voxels and the point closest to the centre of each occupied voxel is kept, so the kept points stay
+ * spread over the whole surface however unevenly the mesh is refined. The selection only depends on
+ * the coordinates, so it is computed once and applied to every field of every step.
+ *
+ * @author cj8q5
+ *
+ */
+public class FieldDecimator
+{
+	private int[] m_selection;
+	private int m_pointCount;
+
+	private FieldDecimator(int[] selection, int pointCount)
+	{
+		m_selection = selection;
+		m_pointCount = pointCount;
+	}
+
+	/** This method keeps one point per voxel
+	 *
+	 * @param x the x coordinate of every point
+	 * @param y the y coordinate of every point
+	 * @param z the z coordinate of every point
+	 * @param voxelSize the edge length of the voxels, in the units of the coordinates
+	 * @return the decimator, its selection is in the original order of the points
+	 */
+	public static FieldDecimator voxelGrid(double[] x, double[] y, double[] z, double voxelSize)
+	{
+		int count = x.length;
+		if (y.length != count || z.length != count)
+		{
+			throw new IllegalArgumentException("The coordinate arrays differ in length");
+		}
+		if (!(voxelSize > 0.0))
+		{
+			throw new IllegalArgumentException("The voxel size must be positive, not " + voxelSize);
+		}
+		if (count == 0)
+		{
+			return new FieldDecimator(new int[0], 0);
+		}
+		double minX = min(x);
+		double minY = min(y);
+		double minZ = min(z);
+
+		// Each point gets the key of its voxel, sorting the keys groups the points of a voxel together
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++)
+		{
+			long ix = (long) ((x[i] - minX)/voxelSize);
+			long iy = (long) ((y[i] - minY)/voxelSize);
+			long iz = (long) ((z[i] - minZ)/voxelSize);
+			if (ix >= (1 << 21) || iy >= (1 << 21) || iz >= (1 << 21))
+			{
+				throw new IllegalArgumentException("The voxel size " + voxelSize + " is too small for the extent of the points");
+			}
+			keys[i] = (ix << 42) | (iy << 21) | iz;
+		}
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i++)
+		{
+			order[i] = i;
+		}
+		final long[] sortKeys = keys;
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			public int compare(Integer a, Integer b)
+			{
+				long keyA = sortKeys[a];
+				long keyB = sortKeys[b];
+				return (keyA < keyB) ? -1 : ((keyA == keyB) ? a.compareTo(b) : 1);
+			}
+		});
+
+		int[] selection = new int[count];
+		int selected = 0;
+		int groupStart = 0;
+		while (groupStart < count)
+		{
+			int groupEnd = groupStart + 1;
+			while (groupEnd < count && keys[order[groupEnd]] == keys[order[groupStart]])
+			{
+				groupEnd++;
+			}
+			long key = keys[order[groupStart]];
+			double centreX = minX + (((key >>> 42) & 0x1FFFFF) + 0.5)*voxelSize;
+			double centreY = minY + (((key >>> 21) & 0x1FFFFF) + 0.5)*voxelSize;
+			double centreZ = minZ + ((key & 0x1FFFFF) + 0.5)*voxelSize;
+			int best = order[groupStart];
+			double bestDistance = Double.MAX_VALUE;
+			for (int i = groupStart; i < groupEnd; i++)
+			{
+				int point = order[i];
+				double dx = x[point] - centreX;
+				double dy = y[point] - centreY;
+				double dz = z[point] - centreZ;
+				double distance = dx*dx + dy*dy + dz*dz;
+				if (distance < bestDistance)
+				{
+					best = point;
+					bestDistance = distance;
+				}
+			}
+			selection[selected++] = best;
+			groupStart = groupEnd;
+		}
+		selection = Arrays.copyOf(selection, selected);
+		Arrays.sort(selection);
+		return new FieldDecimator(selection, count);
+	}// end method voxelGrid
+
+	/** This method keeps every stride-th point, for data without coordinates
+	 *
+	 * @param pointCount the number of points
+	 * @param stride the distance between kept points
+	 */
+	public static FieldDecimator everyNth(int pointCount, int stride)
+	{
+		if (stride < 1)
+		{
+			throw new IllegalArgumentException("The stride must be at least 1, not " + stride);
+		}
+		int[] selection = new int[(pointCount + stride - 1)/stride];
+		for (int i = 0; i < selection.length; i++)
+		{
+			selection[i] = i*stride;
+		}
+		return new FieldDecimator(selection, pointCount);
+	}
+
+	/** This method keeps the selected values of a field
+	 *
+	 * @param values one value per original point
+	 * @return one value per kept point
+	 */
+	public double[] decimate(double[] values)
+	{
+		if (values.length != m_pointCount)
+		{
+			throw new IllegalArgumentException("The field has " + values.length + " points, the decimator was built for " + m_pointCount);
+		}
+		double[] kept = new double[m_selection.length];
+		for (int i = 0; i < kept.length; i++)
+		{
+			kept[i] = values[m_selection[i]];
+		}
+		return kept;
+	}
+
+	// Applies the selection to every column of a table
+	public XyzTableColumns decimate(XyzTableColumns table)
+	{
+		double[][] columns = new double[table.getColumnCount()][];
+		for (int i = 0; i < columns.length; i++)
+		{
+			columns[i] = decimate(table.getColumn(i));
+		}
+		return new XyzTableColumns(table.getNames(), columns);
+	}
+
+	// Returns the indices of the kept points in ascending order
+	public int[] getSelection()
+	{
+		return m_selection.clone();
+	}
+
+	public int getKeptCount()
+	{
+		return m_selection.length;
+	}
+
+	public int getPointCount()
+	{
+		return m_pointCount;
+	}
+
+	private static double min(double[] values)
+	{
+		double min = Double.MAX_VALUE;
+		for (double value : values)
+		{
+			min = Math.min(min, value);
+		}
+		return min;
+	}
+
+}// end class FieldDecimator
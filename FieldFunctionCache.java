@@ -0,0 +1,198 @@
+package starClasses;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import star.common.FieldFunction;
+import star.common.FieldFunctionManager;
+import star.common.PrimitiveFieldFunction;
+import star.common.Simulation;
+import star.common.VectorComponentFieldFunction;
+import star.common.VectorMagnitudeFieldFunction;
+
+/**
+ * This class resolves field function names once per simulation and hands out the same objects
+ * afterwards, together with the component and magnitude functions of vectors. FieldFunctions,
+ * Scenes, SolutionHistoryCreator, Tools, XyzTableBuilder and CoSimulationAbaqus share the cache of
+ * their simulation through forSimulation, so a macro setting up hundreds of scenes and tables looks
+ * each name up in the field function manager only once.
+ *
+ * The field function manager gives these macros no notice of functions being added or removed, so
+ * a cached function is not checked against the manager again. A macro that deletes a field function,
+ * or deletes one and creates another under the same name, must call invalidate(name) afterwards, or
+ * invalidate() after larger changes. Functions added under new names need nothing, a name that is
+ * not cached yet is always looked up.
+ *
+ * The shared caches are held weakly. A cache lives as long as one of the objects using it keeps it,
+ * and the simulation can be collected once none does.
+ *
+ * @author cj8q5
+ *
+ */
+public class FieldFunctionCache
+{
+	private static final int VECTOR_COMPONENTS = 3;
+
+	// The values are weak too, a cache refers back to its simulation and would otherwise keep the key alive
+	private static final Map<Simulation, WeakReference<FieldFunctionCache>> s_caches =
+			new WeakHashMap<Simulation, WeakReference<FieldFunctionCache>>();
+
+	private FieldFunctionManager m_manager;
+	private Map<String, CacheEntry> m_entries = new HashMap<String, CacheEntry>();
+
+	private FieldFunctionCache(Simulation sim)
+	{
+		m_manager = sim.getFieldFunctionManager();
+	}
+
+	/** This method returns the cache of a simulation, creating it the first time
+	 *
+	 * @param sim the simulation holding the field functions
+	 * @return the cache shared by every class working on the simulation, keep it for as long as it is used
+	 */
+	public static FieldFunctionCache forSimulation(Simulation sim)
+	{
+		synchronized (s_caches)
+		{
+			WeakReference<FieldFunctionCache> reference = s_caches.get(sim);
+			FieldFunctionCache cache = (reference == null) ? null : reference.get();
+			if (cache == null)
+			{
+				cache = new FieldFunctionCache(sim);
+				s_caches.put(sim, new WeakReference<FieldFunctionCache>(cache));
+			}
+			return cache;
+		}
+	}
+
+	/** This method returns a field function
+	 *
+	 * @param fieldFunctionName the name of the field function, e.g. "StaticPressure"
+	 */
+	public synchronized FieldFunction getFunction(String fieldFunctionName)
+	{
+		return getEntry(fieldFunctionName).m_function;
+	}
+
+	/** This method returns a field function as the type the caller expects
+	 *
+	 * @param fieldFunctionName the name of the field function, e.g. "CellQuality"
+	 * @param type the class of the function, e.g. CellQualityFunction.class
+	 */
+	public <T extends FieldFunction> T getFunction(String fieldFunctionName, Class<T> type)
+	{
+		FieldFunction fieldFunction = getFunction(fieldFunctionName);
+		if (!type.isInstance(fieldFunction))
+		{
+			throw new IllegalArgumentException("The field function " + fieldFunctionName + " is a "
+					+ fieldFunction.getClass().getSimpleName() + ", not a " + type.getSimpleName());
+		}
+		return type.cast(fieldFunction);
+	}
+
+	public PrimitiveFieldFunction getPrimitiveFunction(String fieldFunctionName)
+	{
+		return getFunction(fieldFunctionName, PrimitiveFieldFunction.class);
+	}
+
+	/** This method returns one component of a vector field function
+	 *
+	 * @param fieldFunctionName the name of the vector field function, e.g. "Velocity"
+	 * @param component 0, 1 or 2
+	 */
+	public synchronized VectorComponentFieldFunction getComponentFunction(String fieldFunctionName, int component)
+	{
+		if (component < 0 || component >= VECTOR_COMPONENTS)
+		{
+			throw new IllegalArgumentException("The vector component must be 0, 1 or 2, not " + component);
+		}
+		CacheEntry entry = getEntry(fieldFunctionName);
+		if (entry.m_components[component] == null)
+		{
+			entry.m_components[component] = (VectorComponentFieldFunction) entry.m_function.getComponentFunction(component);
+		}
+		return entry.m_components[component];
+	}
+
+	// Returns the magnitude of a vector field function
+	public synchronized VectorMagnitudeFieldFunction getMagnitudeFunction(String fieldFunctionName)
+	{
+		CacheEntry entry = getEntry(fieldFunctionName);
+		if (entry.m_magnitude == null)
+		{
+			entry.m_magnitude = (VectorMagnitudeFieldFunction) entry.m_function.getMagnitudeFunction();
+		}
+		return entry.m_magnitude;
+	}
+
+	/** This method resolves several field functions in the order of the names
+	 *
+	 * @param fieldFunctionNames the names of the field functions
+	 * @return the functions, e.g. to wrap in a NeoObjectVector
+	 */
+	public Object[] getFunctions(String[] fieldFunctionNames)
+	{
+		Object[] functions = new Object[fieldFunctionNames.length];
+		for (int i = 0; i < fieldFunctionNames.length; i++)
+		{
+			functions[i] = getFunction(fieldFunctionNames[i]);
+		}
+		return functions;
+	}
+
+	// Forgets every resolved and derived function
+	public synchronized void invalidate()
+	{
+		m_entries.clear();
+	}
+
+	/** This method forgets one field function and the functions derived from it, call it after the
+	 * function has been deleted or replaced
+	 *
+	 * @param fieldFunctionName the name of the field function
+	 */
+	public synchronized void invalidate(String fieldFunctionName)
+	{
+		m_entries.remove(fieldFunctionName);
+	}
+
+	// Returns the number of names resolved since the cache was last emptied
+	public synchronized int getCachedCount()
+	{
+		return m_entries.size();
+	}
+
+	private CacheEntry getEntry(String fieldFunctionName)
+	{
+		CacheEntry entry = m_entries.get(fieldFunctionName);
+		if (entry == null)
+		{
+			FieldFunction fieldFunction = m_manager.getFunction(fieldFunctionName);
+			if (fieldFunction == null)
+			{
+				throw new IllegalArgumentException("The simulation has no field function " + fieldFunctionName);
+			}
+			entry = new CacheEntry(fieldFunction);
+			m_entries.put(fieldFunctionName, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * This class holds a resolved field function and the vector functions derived from it so far
+	 */
+	private static class CacheEntry
+	{
+		private FieldFunction m_function;
+		private VectorComponentFieldFunction[] m_components = new VectorComponentFieldFunction[VECTOR_COMPONENTS];
+		private VectorMagnitudeFieldFunction m_magnitude = null;
+
+		CacheEntry(FieldFunction function)
+		{
+			m_function = function;
+		}
+	}
+
+}// end class FieldFunctionCache
@@ -1,6 +1,10 @@
 package starClasses;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import star.common.CellQualityFunction;
+import star.common.FieldFunction;
 import star.common.PrimitiveFieldFunction;
 import star.common.Simulation;
 import star.common.VectorComponentFieldFunction;
@@ -14,6 +18,7 @@ import star.vis.Scene;
 public class FieldFunctions 
 {
 	private Simulation m_sim;
+	private FieldFunctionCache m_cache;
 	private PrimitiveFieldFunction m_staticPressure;
 	private PrimitiveFieldFunction m_TDR;
 	private PrimitiveFieldFunction m_TKE;
@@ -29,180 +34,188 @@ public class FieldFunctions
 	public FieldFunctions(Simulation sim)
 	{
 		m_sim = sim;
+		m_cache = FieldFunctionCache.forSimulation(sim);
 	}
 	
 	public PrimitiveFieldFunction getStaticPressureFunction()
 	{
-		m_staticPressure = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction("StaticPressure"));
+		m_staticPressure = m_cache.getPrimitiveFunction("StaticPressure");
 		return m_staticPressure;
 	}
 	
 	public PrimitiveFieldFunction getTurbDissRateFunction()
 	{
-		m_TDR = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction("TurbulentDissipationRate"));
+		m_TDR = m_cache.getPrimitiveFunction("TurbulentDissipationRate");
 		return m_TDR;
 	}
 	
 	public PrimitiveFieldFunction getTurbKinEnergyFunction()
 	{
-		m_TKE = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction("TurbulentKineticEnergy"));
+		m_TKE = m_cache.getPrimitiveFunction("TurbulentKineticEnergy");
 		return m_TKE;
 	}
 	
 	public PrimitiveFieldFunction getUStarFunction()
 	{
-		m_uStar = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction("Ustar"));
+		m_uStar = m_cache.getPrimitiveFunction("Ustar");
 		return m_uStar;
 	}
 	
 	public PrimitiveFieldFunction getVolumeFunction()
 	{
-		m_volume = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction("Volume"));
+		m_volume = m_cache.getPrimitiveFunction("Volume");
 		return m_volume;
 	}
 	
 	public PrimitiveFieldFunction getWallYPlusFunction()
 	{
-		m_wallYPlus = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction("WallYplus"));
+		m_wallYPlus = m_cache.getPrimitiveFunction("WallYplus");
 		return m_wallYPlus;
 	}
 	
 	public PrimitiveFieldFunction getNodalDisplacement()
 	{
-		m_nodalDisplacement = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction("NodalDisplacement"));
+		m_nodalDisplacement = m_cache.getPrimitiveFunction("NodalDisplacement");
 		return m_nodalDisplacement;
 	}
 	
 	public CellAspectRatioFunction getCellQualityFunction()
 	{
-		m_cellAspectRatio = ((CellAspectRatioFunction) m_sim.getFieldFunctionManager().getFunction("CellAspectRatio"));
+		m_cellAspectRatio = m_cache.getFunction("CellAspectRatio", CellAspectRatioFunction.class);
 		return m_cellAspectRatio;
 	}
 	
 	public CellQualityFunction getCellAspectRatioFunction()
 	{
-		m_cellQuality = ((CellQualityFunction) m_sim.getFieldFunctionManager().getFunction("CellQuality"));
+		m_cellQuality = m_cache.getFunction("CellQuality", CellQualityFunction.class);
 		return m_cellQuality;
 	}
 	
 	public PrimitiveFieldFunction getVelocityFunction()
 	{
-		m_velocity = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction("Velocity"));
+		m_velocity = m_cache.getPrimitiveFunction("Velocity");
 		return m_velocity;
 	}
 	
 	public PrimitiveFieldFunction getWallShearStress()
 	{
-		m_shearStress = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction("WallShearStress"));
+		m_shearStress = m_cache.getPrimitiveFunction("WallShearStress");
 		return m_shearStress;
 	}
 	
 	/** This method sets the field function for a scalar scene 
 	 * 
-	 * @param sceneName the scene where the scalar field function will be set
+	 * @param scene the scene where the scalar field function will be set
 	 * @param fieldFunctionName name of the field function choices are:
-	 * 		StaticPressure, TurbulentDissipationRate, TurbulentKineticEnergy, Ustar, Volume, WallYplus, CellAspectRatio, CellQuality, Velocity, WallShearStress
+	 * 		StaticPressure, TurbulentDissipationRate, TurbulentKineticEnergy, Ustar, Volume, WallYplus, CellAspectRatio, CellQuality,
+	 * 		Velocity, WallShearStress, Morpher Displacement
 	 * @param vectorDirection name of the field function choices are:
-	 * 		Magnitude, 0, 1, 2
+	 * 		Magnitude, 0, 1, 2, ignored for scalars
 	 */
 	public void setSceneFieldFunction(Scene scene, String fieldFunctionName, String vectorDirection)
 	{
-		VectorComponentFieldFunction vectorComponentFieldFunction;
-		VectorMagnitudeFieldFunction vectorMagnitudeFieldFunction;
-		ScalarDisplayer scalarDisplayer = ((ScalarDisplayer) scene.getDisplayerManager().getDisplayer("Scalar 1"));
-
-		if (fieldFunctionName == "StaticPressure" || fieldFunctionName == "TurbulentDissipationRate" ||
-	    		fieldFunctionName == "TurbulentKineticEnergy" || fieldFunctionName == "Ustar" || fieldFunctionName == "Volume" ||
-	    		fieldFunctionName == "WallYplus")
-	    {
-	    	PrimitiveFieldFunction primitiveFieldFunction = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction(fieldFunctionName));
-	    	scalarDisplayer.getScalarDisplayQuantity().setFieldFunction(primitiveFieldFunction);
-	    }
-		if (fieldFunctionName == "CellAspectRatio")
-		{
-			CellAspectRatioFunction cellAspectRatioFunction = ((CellAspectRatioFunction) m_sim.getFieldFunctionManager().getFunction("CellAspectRatio"));
-		    scalarDisplayer.getScalarDisplayQuantity().setFieldFunction(cellAspectRatioFunction);
-		}
-		if (fieldFunctionName == "CellQuality")
+		Field field = Field.fromName(fieldFunctionName);
+		setSceneFieldFunction(scene, field, field.isVector() ? Component.fromName(vectorDirection) : Component.SCALAR);
+	}// end method setSceneFieldFunction
+	
+	public void setSceneFieldFunction(Scene scene, Field field, Component component)
+	{
+		setSceneFieldFunctions(new Scene[] {scene}, field, component);
+	}
+	
+	/** This method sets the same field function for many scalar scenes, it is resolved once for all of them
+	 * 
+	 * @param scenes the scenes where the scalar field function will be set
+	 * @param field the field function
+	 * @param component the vector component or magnitude, ignored for scalars
+	 */
+	public void setSceneFieldFunctions(Scene[] scenes, Field field, Component component)
+	{
+		FieldFunction fieldFunction = resolve(field, component);
+		for (int i = 0; i < scenes.length; i++)
 		{
-			CellQualityFunction cellQualityFunction = ((CellQualityFunction) m_sim.getFieldFunctionManager().getFunction("CellQuality"));
-		    scalarDisplayer.getScalarDisplayQuantity().setFieldFunction(cellQualityFunction);
+			ScalarDisplayer scalarDisplayer = ((ScalarDisplayer) scenes[i].getDisplayerManager().getDisplayer("Scalar 1"));
+			scalarDisplayer.getScalarDisplayQuantity().setFieldFunction(fieldFunction);
 		}
-		if (fieldFunctionName == "Velocity" || fieldFunctionName == "WallShearStress" || fieldFunctionName == "Morpher Displacement")
+	}
+	
+	// Looks up the scenes by name and sets the same field function for all of them
+	public void setSceneFieldFunctions(String[] sceneNames, Field field, Component component)
+	{
+		Scene[] scenes = new Scene[sceneNames.length];
+		for (int i = 0; i < sceneNames.length; i++)
 		{
-			PrimitiveFieldFunction primitiveFieldFunction = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction(fieldFunctionName));
-			
-			if (vectorDirection == "Magnitude")
-			{
-				vectorMagnitudeFieldFunction = ((VectorMagnitudeFieldFunction) primitiveFieldFunction.getMagnitudeFunction());
-				scalarDisplayer.getScalarDisplayQuantity().setFieldFunction(vectorMagnitudeFieldFunction);
-			}
-			if (vectorDirection == "0")
-			{
-				vectorComponentFieldFunction = ((VectorComponentFieldFunction) primitiveFieldFunction.getComponentFunction(0));
-				scalarDisplayer.getScalarDisplayQuantity().setFieldFunction(vectorComponentFieldFunction);
-			}
-			if (vectorDirection == "1")
-			{
-				vectorComponentFieldFunction = ((VectorComponentFieldFunction) primitiveFieldFunction.getComponentFunction(1));
-				scalarDisplayer.getScalarDisplayQuantity().setFieldFunction(vectorComponentFieldFunction);
-			}
-			if (vectorDirection == "2")
-			{
-				vectorComponentFieldFunction = ((VectorComponentFieldFunction) primitiveFieldFunction.getComponentFunction(2));
-				scalarDisplayer.getScalarDisplayQuantity().setFieldFunction(vectorComponentFieldFunction);
-			}
+			scenes[i] = m_sim.getSceneManager().getScene(sceneNames[i]);
 		}
-	}// end method setSceneFieldFunction
+		setSceneFieldFunctions(scenes, field, component);
+	}
 	
 	/** This method sets the field function for a XYPlot scene 
 	 * 
-	 * @param scene the scene where the scalar field function will be set
+	 * @param xYPlot the plot where the field function of the y axis will be set
 	 * @param fieldFunctionName name of the field function choices are:
-	 * 		StaticPressure, TurbulentDissipationRate, TurbulentKineticEnergy, Ustar, Volume, WallYplus, CellAspectRatio, CellQuality, Velocity, WallShearStress
+	 * 		StaticPressure, TurbulentDissipationRate, TurbulentKineticEnergy, Ustar, Volume, WallYplus, CellAspectRatio, CellQuality,
+	 * 		Velocity, WallShearStress, Morpher Displacement
 	 * @param vectorDirection name of the field function choices are:
-	 * 		Magnitude, 0, 1, 2
+	 * 		Magnitude, 0, 1, 2, ignored for scalars
 	 */
 	public void setXYPlotFieldFunction(XYPlot xYPlot, String fieldFunctionName, String vectorDirection)
 	{
-		VectorComponentFieldFunction vectorComponentFieldFunction;
-		VectorMagnitudeFieldFunction vectorMagnitudeFieldFunction;
-		YAxisType yAxisType_0 = ((YAxisType) xYPlot.getYAxes().getAxisType("Y Type 1"));
-
-		if (fieldFunctionName == "StaticPressure" || fieldFunctionName == "TurbulentDissipationRate" ||
-	    		fieldFunctionName == "TurbulentKineticEnergy" || fieldFunctionName == "Ustar" || fieldFunctionName == "Volume" ||
-	    		fieldFunctionName == "WallYplus")
-	    {
-	    	PrimitiveFieldFunction primitiveFieldFunction = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction(fieldFunctionName));
-	    	yAxisType_0.setFieldFunction(primitiveFieldFunction);
-	    }
-		if (fieldFunctionName == "Velocity" || fieldFunctionName == "WallShearStress")
-		{
-			PrimitiveFieldFunction primitiveFieldFunction = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction(fieldFunctionName));
-			
-			if (vectorDirection == "Magnitude")
-			{
-				vectorMagnitudeFieldFunction = ((VectorMagnitudeFieldFunction) primitiveFieldFunction.getMagnitudeFunction());
-				yAxisType_0.setFieldFunction(vectorMagnitudeFieldFunction);
-			}
-			if (vectorDirection == "0")
-			{
-				vectorComponentFieldFunction = ((VectorComponentFieldFunction) primitiveFieldFunction.getComponentFunction(0));
-				yAxisType_0.setFieldFunction(vectorComponentFieldFunction);
-			}
-			if (vectorDirection == "1")
-			{
-				vectorComponentFieldFunction = ((VectorComponentFieldFunction) primitiveFieldFunction.getComponentFunction(1));
-				yAxisType_0.setFieldFunction(vectorComponentFieldFunction);
-			}
-			if (vectorDirection == "2")
-			{
-				vectorComponentFieldFunction = ((VectorComponentFieldFunction) primitiveFieldFunction.getComponentFunction(2));
-				yAxisType_0.setFieldFunction(vectorComponentFieldFunction);
-			}
-		}
+		Field field = Field.fromName(fieldFunctionName);
+		setXYPlotFieldFunction(xYPlot, field, field.isVector() ? Component.fromName(vectorDirection) : Component.SCALAR);
 	}// end method setXYPlotFieldFunction
 	
+	public void setXYPlotFieldFunction(XYPlot xYPlot, Field field, Component component)
+	{
+		setXYPlotFieldFunctions(new XYPlot[] {xYPlot}, field, component);
+	}
+	
+	/** This method sets the same field function for the y axis of many XY plots, it is resolved once for all of them
+	 * 
+	 * @param xYPlots the plots where the field function will be set
+	 * @param field the field function
+	 * @param component the vector component or magnitude, ignored for scalars
+	 */
+	public void setXYPlotFieldFunctions(XYPlot[] xYPlots, Field field, Component component)
+	{
+		FieldFunction fieldFunction = resolve(field, component);
+		for (int i = 0; i < xYPlots.length; i++)
+		{
+			YAxisType yAxisType_0 = ((YAxisType) xYPlots[i].getYAxes().getAxisType("Y Type 1"));
+			yAxisType_0.setFieldFunction(fieldFunction);
+		}
+	}
+	
+	// Looks up the plots by name and sets the same field function for all of them
+	public void setXYPlotFieldFunctions(String[] plotNames, Field field, Component component)
+	{
+		XYPlot[] xYPlots = new XYPlot[plotNames.length];
+		for (int i = 0; i < plotNames.length; i++)
+		{
+			xYPlots[i] = ((XYPlot) m_sim.getPlotManager().getPlot(plotNames[i]));
+		}
+		setXYPlotFieldFunctions(xYPlots, field, component);
+	}
+	
+	/** This method returns the field function shown for a field and component
+	 * 
+	 * @param field the field function
+	 * @param component the vector component or magnitude, ignored for scalars
+	 * @return the field function itself for a scalar, its component or magnitude function for a vector
+	 */
+	public FieldFunction resolve(Field field, Component component)
+	{
+		if (!field.isVector())
+		{
+			return m_cache.getFunction(field.getName());
+		}
+		if (component == Component.SCALAR)
+		{
+			throw new IllegalArgumentException("The vector field function " + field.getName() + " needs a component, Magnitude, 0, 1 or 2");
+		}
+		return component.resolve(m_cache, field.getName());
+	}
+	
 	/** This method sets the field function for a report 
 	 * 
 	 * @param fieldFunctionName name of the field function choices are:
@@ -211,7 +224,7 @@ public class FieldFunctions
 	 */
 	public PrimitiveFieldFunction getFieldFunctionScalar(String fieldFunctionName)
 	{
-    	PrimitiveFieldFunction primitiveFieldFunction = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction(fieldFunctionName));
+    	PrimitiveFieldFunction primitiveFieldFunction = m_cache.getPrimitiveFunction(fieldFunctionName);
     	return primitiveFieldFunction;
 		
 	}// end method setSceneFieldFunction
@@ -223,8 +236,7 @@ public class FieldFunctions
 	 */
 	public VectorMagnitudeFieldFunction getFieldFunctionVectorMag(String fieldFunctionName)
 	{
-		PrimitiveFieldFunction primitiveFieldFunction = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction(fieldFunctionName));
-		VectorMagnitudeFieldFunction vectorMagnitudeFieldFunction = ((VectorMagnitudeFieldFunction) primitiveFieldFunction.getMagnitudeFunction());
+		VectorMagnitudeFieldFunction vectorMagnitudeFieldFunction = m_cache.getMagnitudeFunction(fieldFunctionName);
 		return vectorMagnitudeFieldFunction;
 		
 	}// end method getFieldFunctionVectorMag
@@ -237,15 +249,144 @@ public class FieldFunctions
 	 */
 	public VectorComponentFieldFunction getFieldFunctionVectorComp(String fieldFunctionName, int vectorComponent)
 	{
-		PrimitiveFieldFunction primitiveFieldFunction = ((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction(fieldFunctionName));
 		VectorComponentFieldFunction vectorComponentFieldFunction = null;
 		
 		if (vectorComponent == 0 || vectorComponent == 1 || vectorComponent == 2)
 		{
-			vectorComponentFieldFunction = ((VectorComponentFieldFunction) primitiveFieldFunction.getComponentFunction(vectorComponent));
+			vectorComponentFieldFunction = m_cache.getComponentFunction(fieldFunctionName, vectorComponent);
 		}
 		return vectorComponentFieldFunction;
 		
 	}//end method getFieldFunctionVectorComponent
 	
+	/**
+	 * The field functions the scene and plot methods accept, with the name they have in the simulation
+	 */
+	public enum Field
+	{
+		STATIC_PRESSURE("StaticPressure", false),
+		TURBULENT_DISSIPATION_RATE("TurbulentDissipationRate", false),
+		TURBULENT_KINETIC_ENERGY("TurbulentKineticEnergy", false),
+		USTAR("Ustar", false),
+		VOLUME("Volume", false),
+		WALL_Y_PLUS("WallYplus", false),
+		CELL_ASPECT_RATIO("CellAspectRatio", false),
+		CELL_QUALITY("CellQuality", false),
+		VELOCITY("Velocity", true),
+		WALL_SHEAR_STRESS("WallShearStress", true),
+		MORPHER_DISPLACEMENT("Morpher Displacement", true);
+		
+		private static final Map<String, Field> s_byName = new HashMap<String, Field>();
+		static
+		{
+			for (Field field : values())
+			{
+				s_byName.put(field.m_name, field);
+			}
+		}
+		
+		private final String m_name;
+		private final boolean m_vector;
+		
+		private Field(String name, boolean vector)
+		{
+			m_name = name;
+			m_vector = vector;
+		}
+		
+		public String getName()
+		{
+			return m_name;
+		}
+		
+		public boolean isVector()
+		{
+			return m_vector;
+		}
+		
+		// Returns the field with a simulation name, e.g. "StaticPressure"
+		public static Field fromName(String name)
+		{
+			Field field = s_byName.get(name);
+			if (field == null)
+			{
+				throw new IllegalArgumentException("Unknown field function " + name + ", the choices are " + s_byName.keySet());
+			}
+			return field;
+		}
+	}// end enum Field
+	
+	/**
+	 * The part of a field function that is shown, each value resolves its own function from the cache
+	 */
+	public enum Component
+	{
+		SCALAR
+		{
+			FieldFunction resolve(FieldFunctionCache cache, String name)
+			{
+				return cache.getFunction(name);
+			}
+		},
+		MAGNITUDE
+		{
+			FieldFunction resolve(FieldFunctionCache cache, String name)
+			{
+				return cache.getMagnitudeFunction(name);
+			}
+		},
+		X
+		{
+			FieldFunction resolve(FieldFunctionCache cache, String name)
+			{
+				return cache.getComponentFunction(name, 0);
+			}
+		},
+		Y
+		{
+			FieldFunction resolve(FieldFunctionCache cache, String name)
+			{
+				return cache.getComponentFunction(name, 1);
+			}
+		},
+		Z
+		{
+			FieldFunction resolve(FieldFunctionCache cache, String name)
+			{
+				return cache.getComponentFunction(name, 2);
+			}
+		};
+		
+		abstract FieldFunction resolve(FieldFunctionCache cache, String name);
+		
+		/** This method returns the component of a vector direction as the string methods take it
+		 * 
+		 * @param vectorDirection "Magnitude", "0", "1" or "2", null or an empty string for a scalar
+		 */
+		public static Component fromName(String vectorDirection)
+		{
+			if (vectorDirection == null || vectorDirection.isEmpty())
+			{
+				return SCALAR;
+			}
+			if (vectorDirection.equals("Magnitude"))
+			{
+				return MAGNITUDE;
+			}
+			if (vectorDirection.equals("0"))
+			{
+				return X;
+			}
+			if (vectorDirection.equals("1"))
+			{
+				return Y;
+			}
+			if (vectorDirection.equals("2"))
+			{
+				return Z;
+			}
+			throw new IllegalArgumentException("The vector direction must be Magnitude, 0, 1 or 2, not " + vectorDirection);
+		}
+	}// end enum Component
+	
 }// end class FieldFunctions
@@ -0,0 +1,276 @@
+package starClasses;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * This class reads the field history files written by FieldHistoryWriter. The index is loaded when
+ * the file is opened. Reading a field of a step then maps only the part of the file from the
+ * keyframe before the step to the step itself and decodes the blocks of that one field, so any step
+ * of a long transient is reached without reading the steps before its keyframe. Moving forward
+ * through the steps of a field continues from the last step read instead of going back to the
+ * keyframe.
+ *
+ * @author cj8q5
+ *
+ */
+public class FieldHistoryReader
+{
+	private String m_fileName;
+	private RandomAccessFile m_file;
+	private FileChannel m_data;
+	private String[] m_fieldNames;
+	private double[] m_quanta;
+	private int m_pointCount;
+	private int m_keyframeInterval;
+
+	// The index, the block of field f of step s lies between m_offsets[s] + m_blockOffsets[s][f] and m_offsets[s] + m_blockOffsets[s][f + 1]
+	private long[] m_steps;
+	private double[] m_times;
+	private long[] m_offsets;
+	private boolean[] m_keyframes;
+	private int[][] m_blockOffsets;
+
+	// The last step reconstructed for each field
+	private int[] m_cachedStep;
+	private double[][] m_cachedValues;
+
+	public FieldHistoryReader(String fileToRead) throws IOException
+	{
+		m_fileName = fileToRead;
+		m_file = new RandomAccessFile(fileToRead, "r");
+		RandomAccessFile indexFile = new RandomAccessFile(FieldHistoryWriter.getIndexFile(fileToRead), "r");
+		try
+		{
+			m_data = m_file.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(FieldHistoryWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			XyzTimeSeriesReader.readFully(m_data, header, 0, fileToRead);
+			if (header.getInt(0) != FieldHistoryWriter.MAGIC || header.getInt(4) != FieldHistoryWriter.VERSION)
+			{
+				throw new IOException(fileToRead + " is not a version " + FieldHistoryWriter.VERSION + " field history file");
+			}
+			int fieldCount = header.getInt(8);
+			m_pointCount = header.getInt(12);
+			m_keyframeInterval = header.getInt(16);
+			int dataOffset = header.getInt(20);
+			ByteBuffer names = ByteBuffer.allocate(dataOffset - FieldHistoryWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			XyzTimeSeriesReader.readFully(m_data, names, FieldHistoryWriter.HEADER_SIZE, fileToRead);
+			m_fieldNames = new String[fieldCount];
+			m_quanta = new double[fieldCount];
+			for (int i = 0; i < fieldCount; i++)
+			{
+				m_quanta[i] = names.getDouble();
+				m_fieldNames[i] = XyzTimeSeriesReader.readNames(names, 1)[0];
+			}
+
+			FileChannel index = indexFile.getChannel();
+			ByteBuffer records = ByteBuffer.allocate((int) index.size()).order(ByteOrder.LITTLE_ENDIAN);
+			XyzTimeSeriesReader.readFully(index, records, 0, fileToRead);
+			int recordSize = FieldHistoryWriter.getRecordSize(fieldCount);
+			if (records.remaining() < FieldHistoryWriter.INDEX_HEADER_SIZE || records.getInt(0) != FieldHistoryWriter.INDEX_MAGIC
+					|| records.getInt(8) != fieldCount || records.getInt(12) != recordSize)
+			{
+				throw new IOException(FieldHistoryWriter.getIndexFile(fileToRead) + " is not the index of " + fileToRead);
+			}
+
+			// A record cut short by a run that stopped while writing it is left out
+			int stepCount = (records.remaining() - FieldHistoryWriter.INDEX_HEADER_SIZE)/recordSize;
+			m_steps = new long[stepCount];
+			m_times = new double[stepCount];
+			m_offsets = new long[stepCount];
+			m_keyframes = new boolean[stepCount];
+			m_blockOffsets = new int[stepCount][fieldCount + 1];
+			for (int i = 0; i < stepCount; i++)
+			{
+				records.position(FieldHistoryWriter.INDEX_HEADER_SIZE + i*recordSize);
+				m_steps[i] = records.getLong();
+				m_times[i] = records.getDouble();
+				m_offsets[i] = records.getLong();
+				m_keyframes[i] = (records.getInt() == 1);
+				records.getInt();
+				for (int field = 0; field <= fieldCount; field++)
+				{
+					m_blockOffsets[i][field] = records.getInt();
+				}
+			}
+			if (stepCount > 0 && !m_keyframes[0])
+			{
+				throw new IOException("The first step of " + fileToRead + " is not a keyframe");
+			}
+			if (stepCount > 0 && m_data.size() < m_offsets[stepCount - 1] + m_blockOffsets[stepCount - 1][fieldCount])
+			{
+				throw new IOException(fileToRead + " is shorter than its index says");
+			}
+		}
+		catch (IOException e)
+		{
+			m_file.close();
+			throw e;
+		}
+		finally
+		{
+			indexFile.close();
+		}
+
+		m_cachedStep = new int[m_fieldNames.length];
+		Arrays.fill(m_cachedStep, -1);
+		m_cachedValues = new double[m_fieldNames.length][];
+	}// end constructor
+
+	/** This method reconstructs one field of one step
+	 *
+	 * @param stepIndex the index of the step, see findStep
+	 * @param field the index of the field
+	 * @return the values, exact for a keyframe and within half a quantum otherwise
+	 */
+	public double[] getValues(int stepIndex, int field) throws IOException
+	{
+		if (stepIndex < 0 || stepIndex >= m_steps.length)
+		{
+			throw new IndexOutOfBoundsException("Step " + stepIndex + " of " + m_steps.length);
+		}
+		if (field < 0 || field >= m_fieldNames.length)
+		{
+			throw new IndexOutOfBoundsException("Field " + field + " of " + m_fieldNames.length);
+		}
+		int keyframe = stepIndex;
+		while (!m_keyframes[keyframe])
+		{
+			keyframe--;
+		}
+
+		// Continue from the last reconstructed step when it lies between the keyframe and the step
+		int start = keyframe;
+		double[] values = null;
+		if (m_cachedStep[field] >= keyframe && m_cachedStep[field] <= stepIndex)
+		{
+			start = m_cachedStep[field] + 1;
+			values = m_cachedValues[field].clone();
+		}
+
+		if (start <= stepIndex)
+		{
+			long mapStart = m_offsets[start] + m_blockOffsets[start][field];
+			long mapEnd = m_offsets[stepIndex] + m_blockOffsets[stepIndex][field + 1];
+			MappedByteBuffer mapped = m_data.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+			for (int i = start; i <= stepIndex; i++)
+			{
+				byte[] block = new byte[m_blockOffsets[i][field + 1] - m_blockOffsets[i][field]];
+				mapped.position((int) (m_offsets[i] + m_blockOffsets[i][field] - mapStart));
+				mapped.get(block);
+				if (values == null)
+				{
+					values = FieldHistoryStore.decodeKeyframe(block, m_pointCount);
+				}
+				else
+				{
+					FieldHistoryStore.applyDelta(block, values, m_quanta[field]);
+				}
+			}
+		}
+		m_cachedStep[field] = stepIndex;
+		m_cachedValues[field] = values.clone();
+		return values;
+	}// end method getValues
+
+	public double[] getValues(int stepIndex, String fieldName) throws IOException
+	{
+		return getValues(stepIndex, getFieldIndex(fieldName));
+	}
+
+	/** This method finds the index of a step number
+	 *
+	 * @return the index of the step, or -1 if it is not in the file
+	 */
+	public int findStep(long step)
+	{
+		int index = Arrays.binarySearch(m_steps, step);
+		return (index < 0) ? -1 : index;
+	}
+
+	/** This method finds the first step at or after a solution time, to start replaying a time window
+	 *
+	 * @return the index of the step, or the step count if every step is earlier
+	 */
+	public int findTime(double time)
+	{
+		int low = 0;
+		int high = m_times.length;
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if (m_times[middle] < time)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	public int getFieldIndex(String fieldName)
+	{
+		for (int i = 0; i < m_fieldNames.length; i++)
+		{
+			if (m_fieldNames[i].equals(fieldName))
+			{
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("The field history " + m_fileName + " has no field " + fieldName);
+	}
+
+	public int getStepCount()
+	{
+		return m_steps.length;
+	}
+
+	public long getStep(int stepIndex)
+	{
+		return m_steps[stepIndex];
+	}
+
+	public double getTime(int stepIndex)
+	{
+		return m_times[stepIndex];
+	}
+
+	public boolean isKeyframe(int stepIndex)
+	{
+		return m_keyframes[stepIndex];
+	}
+
+	public String[] getFieldNames()
+	{
+		return m_fieldNames.clone();
+	}
+
+	public double getQuantum(int field)
+	{
+		return m_quanta[field];
+	}
+
+	public int getPointCount()
+	{
+		return m_pointCount;
+	}
+
+	public int getKeyframeInterval()
+	{
+		return m_keyframeInterval;
+	}
+
+	public void close() throws IOException
+	{
+		m_file.close();
+	}
+
+}// end class FieldHistoryReader
@@ -0,0 +1,535 @@
+package starClasses;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * This class keeps the history of several fields sampled at fixed points, e.g. the columns of an
+ * XYZ table export on the FSI walls at every coupling step, in far less space than storing every
+ * step in full. Every keyframeInterval-th step is a keyframe holding the exact values. The steps in
+ * between hold the change from the step before, divided by the quantum of the field and rounded,
+ * written as zigzag varints and Deflate compressed. Consecutive steps differ little, so most
+ * changes are a few bits.
+ *
+ * The quantization is closed loop, the change is taken from the reconstructed previous step and not
+ * the exact one, so the error of any step stays below half a quantum however far it is from its
+ * keyframe. Any step is reconstructed from its keyframe and at most keyframeInterval - 1 deltas.
+ *
+ * A value that is not finite, e.g. a NaN at a point outside the mapped region, has no change to
+ * quantize. A delta block therefore starts with the points whose new or previous value is not
+ * finite, each stored as its distance from the point before it and its exact value, and then holds
+ * a change of 0 for them. A point that stays NaN for the whole run costs a few bytes per step
+ * instead of turning every step into a keyframe.
+ *
+ * The fields are usually those registered with SolutionHistoryCreator, see its getHistoryFieldNames.
+ *
+ * @author cj8q5
+ *
+ */
+public class FieldHistoryStore
+{
+	// First byte of every block
+	static final byte KEYFRAME = 0;
+	static final byte DELTA = 1;
+
+	// Largest quantized change stored in a delta, larger changes make the step a keyframe
+	private static final double MAX_QUANTIZED = 1L << 52;
+
+	private String[] m_fieldNames;
+	private double[] m_quanta;
+	private int m_pointCount;
+	private int m_keyframeInterval;
+
+	// One entry per step, the blocks hold one compressed byte array per field
+	private List<byte[][]> m_blocks = new ArrayList<byte[][]>();
+	private long[] m_steps = new long[16];
+	private double[] m_times = new double[16];
+	private boolean[] m_keyframes = new boolean[16];
+	private int m_stepCount = 0;
+	private int m_lastKeyframe = -1;
+	private long m_compressedBytes = 0;
+
+	// The reconstructed values of the last step added, the base of the next delta
+	private double[][] m_previous;
+
+	// The last step reconstructed for each field, so stepping forward does not start at the keyframe again
+	private int[] m_cachedStep;
+	private double[][] m_cachedValues;
+
+	private Deflater m_deflater = new Deflater(Deflater.BEST_SPEED);
+
+	/**
+	 * @param fieldNames the name of each field
+	 * @param quanta the largest error allowed in each field is half of its quantum, in the units of the field
+	 * @param pointCount the number of points every field is sampled at
+	 * @param keyframeInterval the number of steps from one keyframe to the next
+	 */
+	public FieldHistoryStore(String[] fieldNames, double[] quanta, int pointCount, int keyframeInterval)
+	{
+		if (fieldNames.length != quanta.length)
+		{
+			throw new IllegalArgumentException(fieldNames.length + " fields but " + quanta.length + " quanta");
+		}
+		for (int i = 0; i < quanta.length; i++)
+		{
+			if (!(quanta[i] > 0.0))
+			{
+				throw new IllegalArgumentException("The quantum of " + fieldNames[i] + " must be positive, not " + quanta[i]);
+			}
+		}
+		if (keyframeInterval < 1)
+		{
+			throw new IllegalArgumentException("The keyframe interval must be at least 1, not " + keyframeInterval);
+		}
+		m_fieldNames = fieldNames.clone();
+		m_quanta = quanta.clone();
+		m_pointCount = pointCount;
+		m_keyframeInterval = keyframeInterval;
+		m_previous = new double[fieldNames.length][];
+		m_cachedStep = new int[fieldNames.length];
+		Arrays.fill(m_cachedStep, -1);
+		m_cachedValues = new double[fieldNames.length][];
+	}
+
+	/** This method adds the next step
+	 *
+	 * @param step the time step or coupling step number, larger than that of the last step
+	 * @param time the solution time of the step
+	 * @param values the values of each field, in the order of the field names
+	 */
+	public void addStep(long step, double time, double[][] values)
+	{
+		if (values.length != m_fieldNames.length)
+		{
+			throw new IllegalArgumentException("The step has " + values.length + " fields, the store has " + m_fieldNames.length);
+		}
+		if (m_stepCount > 0 && step <= m_steps[m_stepCount - 1])
+		{
+			throw new IllegalArgumentException("Step " + step + " does not come after step " + m_steps[m_stepCount - 1]);
+		}
+		for (int field = 0; field < values.length; field++)
+		{
+			if (values[field].length != m_pointCount)
+			{
+				throw new IllegalArgumentException("Field " + m_fieldNames[field] + " has " + values[field].length + " points, expected " + m_pointCount);
+			}
+		}
+
+		boolean keyframe = (m_lastKeyframe < 0 || m_stepCount - m_lastKeyframe >= m_keyframeInterval || !deltasFit(values));
+		byte[][] blocks = new byte[values.length][];
+		for (int field = 0; field < values.length; field++)
+		{
+			if (keyframe)
+			{
+				blocks[field] = encodeKeyframe(values[field]);
+				m_previous[field] = values[field].clone();
+			}
+			else
+			{
+				blocks[field] = encodeDelta(values[field], m_previous[field], m_quanta[field]);
+			}
+			m_compressedBytes += blocks[field].length;
+		}
+
+		if (m_stepCount == m_steps.length)
+		{
+			m_steps = Arrays.copyOf(m_steps, m_stepCount*2);
+			m_times = Arrays.copyOf(m_times, m_stepCount*2);
+			m_keyframes = Arrays.copyOf(m_keyframes, m_stepCount*2);
+		}
+		m_steps[m_stepCount] = step;
+		m_times[m_stepCount] = time;
+		m_keyframes[m_stepCount] = keyframe;
+		m_blocks.add(blocks);
+		if (keyframe)
+		{
+			m_lastKeyframe = m_stepCount;
+		}
+		m_stepCount++;
+	}// end method addStep
+
+	/** This method adds the next step from a table export, each field is the column whose name
+	 * starts with the field name followed by a space or a colon, e.g. "StaticPressure (Pa)"
+	 *
+	 * @param step the time step or coupling step number
+	 * @param time the solution time of the step
+	 * @param table the table of the step, decimated or not
+	 */
+	public void addStep(long step, double time, XyzTableColumns table)
+	{
+		double[][] values = new double[m_fieldNames.length][];
+		for (int field = 0; field < m_fieldNames.length; field++)
+		{
+			values[field] = table.getColumn(findColumn(table, m_fieldNames[field]));
+		}
+		addStep(step, time, values);
+	}
+
+	static int findColumn(XyzTableColumns table, String fieldName)
+	{
+		for (int i = 0; i < table.getColumnCount(); i++)
+		{
+			String name = table.getName(i);
+			if (name.equals(fieldName) || name.startsWith(fieldName + " ") || name.startsWith(fieldName + ":"))
+			{
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("The table has no column for the field " + fieldName);
+	}
+
+	/** This method reconstructs one field of one step
+	 *
+	 * @param stepIndex the index of the step, from 0 in the order the steps were added
+	 * @param field the index of the field
+	 * @return the values, exact for a keyframe and within half a quantum otherwise
+	 */
+	public double[] getValues(int stepIndex, int field)
+	{
+		if (stepIndex < 0 || stepIndex >= m_stepCount)
+		{
+			throw new IndexOutOfBoundsException("Step " + stepIndex + " of " + m_stepCount);
+		}
+		int keyframe = stepIndex;
+		while (!m_keyframes[keyframe])
+		{
+			keyframe--;
+		}
+
+		if (m_blocks.get(keyframe) == null)
+		{
+			throw new IllegalStateException("Step " + stepIndex + " has been released after it was written, read it with FieldHistoryReader");
+		}
+
+		// Continue from the last reconstructed step when it lies between the keyframe and the step
+		int start;
+		double[] values;
+		if (m_cachedStep[field] >= keyframe && m_cachedStep[field] <= stepIndex)
+		{
+			start = m_cachedStep[field] + 1;
+			values = m_cachedValues[field].clone();
+		}
+		else
+		{
+			start = keyframe + 1;
+			values = decodeKeyframe(m_blocks.get(keyframe)[field], m_pointCount);
+		}
+		for (int i = start; i <= stepIndex; i++)
+		{
+			applyDelta(m_blocks.get(i)[field], values, m_quanta[field]);
+		}
+		m_cachedStep[field] = stepIndex;
+		m_cachedValues[field] = values.clone();
+		return values;
+	}// end method getValues
+
+	public double[] getValues(int stepIndex, String fieldName)
+	{
+		return getValues(stepIndex, getFieldIndex(fieldName));
+	}
+
+	/** This method finds the index of a step number
+	 *
+	 * @return the index of the step, or -1 if it is not in the store
+	 */
+	public int findStep(long step)
+	{
+		int index = Arrays.binarySearch(m_steps, 0, m_stepCount, step);
+		return (index < 0) ? -1 : index;
+	}
+
+	public int getFieldIndex(String fieldName)
+	{
+		for (int i = 0; i < m_fieldNames.length; i++)
+		{
+			if (m_fieldNames[i].equals(fieldName))
+			{
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("The store has no field " + fieldName);
+	}
+
+	public int getStepCount()
+	{
+		return m_stepCount;
+	}
+
+	public long getStep(int stepIndex)
+	{
+		return m_steps[stepIndex];
+	}
+
+	public double getTime(int stepIndex)
+	{
+		return m_times[stepIndex];
+	}
+
+	public boolean isKeyframe(int stepIndex)
+	{
+		return m_keyframes[stepIndex];
+	}
+
+	// Returns the compressed block of one field of one step, as written by FieldHistoryWriter
+	byte[] getBlock(int stepIndex, int field)
+	{
+		return m_blocks.get(stepIndex)[field];
+	}
+
+	/** This method frees the blocks of every step before the last keyframe, once they have been written
+	 * to a file, so a long run keeps at most one keyframe interval of blocks in memory
+	 */
+	void releaseWrittenBlocks()
+	{
+		for (int i = m_lastKeyframe - 1; i >= 0 && m_blocks.get(i) != null; i--)
+		{
+			m_blocks.set(i, null);
+		}
+		for (int field = 0; field < m_fieldNames.length; field++)
+		{
+			if (m_cachedStep[field] < m_lastKeyframe)
+			{
+				m_cachedStep[field] = -1;
+				m_cachedValues[field] = null;
+			}
+		}
+	}
+
+	public String[] getFieldNames()
+	{
+		return m_fieldNames.clone();
+	}
+
+	public double getQuantum(int field)
+	{
+		return m_quanta[field];
+	}
+
+	public int getPointCount()
+	{
+		return m_pointCount;
+	}
+
+	public int getKeyframeInterval()
+	{
+		return m_keyframeInterval;
+	}
+
+	public long getCompressedBytes()
+	{
+		return m_compressedBytes;
+	}
+
+	// Returns the bytes the steps would take as plain doubles
+	public long getRawBytes()
+	{
+		return 8L*m_stepCount*m_fieldNames.length*m_pointCount;
+	}
+
+	// A step that would need a change too large for a varint becomes a keyframe, values that are not finite are stored exactly
+	private boolean deltasFit(double[][] values)
+	{
+		for (int field = 0; field < values.length; field++)
+		{
+			for (int i = 0; i < m_pointCount; i++)
+			{
+				if (isExact(values[field][i], m_previous[field][i]))
+				{
+					continue;
+				}
+				double quantized = Math.abs(values[field][i] - m_previous[field][i])/m_quanta[field];
+				if (!(quantized < MAX_QUANTIZED))
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private byte[] encodeKeyframe(double[] values)
+	{
+		ByteBuffer raw = ByteBuffer.allocate(8*values.length).order(ByteOrder.LITTLE_ENDIAN);
+		for (double value : values)
+		{
+			raw.putDouble(value);
+		}
+		return compress(KEYFRAME, raw.array(), raw.position());
+	}
+
+	// Returns true for a point whose value is stored exactly in a delta block instead of as a change
+	private static boolean isExact(double value, double previous)
+	{
+		return Double.isNaN(value) || Double.isInfinite(value) || Double.isNaN(previous) || Double.isInfinite(previous);
+	}
+
+	// Returns the largest size of a delta block before compression, a varint takes at most 10 bytes
+	private static int getMaxDeltaLength(int pointCount)
+	{
+		return 10 + 18*pointCount;
+	}
+
+	// Quantizes the change from the reconstructed previous values and moves them on to the new reconstruction
+	private byte[] encodeDelta(double[] values, double[] previous, double quantum)
+	{
+		ByteBuffer raw = ByteBuffer.allocate(getMaxDeltaLength(values.length)).order(ByteOrder.LITTLE_ENDIAN);
+		int exactCount = 0;
+		for (int i = 0; i < values.length; i++)
+		{
+			exactCount += isExact(values[i], previous[i]) ? 1 : 0;
+		}
+		putVarint(raw, exactCount);
+		int lastExact = -1;
+		for (int i = 0; i < values.length && exactCount > 0; i++)
+		{
+			if (isExact(values[i], previous[i]))
+			{
+				putVarint(raw, i - lastExact);
+				raw.putDouble(values[i]);
+				lastExact = i;
+			}
+		}
+		for (int i = 0; i < values.length; i++)
+		{
+			if (isExact(values[i], previous[i]))
+			{
+				previous[i] = values[i];
+				putVarint(raw, 0);
+				continue;
+			}
+			long quantized = Math.round((values[i] - previous[i])/quantum);
+			previous[i] += quantized*quantum;
+			putVarint(raw, (quantized << 1) ^ (quantized >> 63));
+		}
+		return compress(DELTA, raw.array(), raw.position());
+	}
+
+	private static void putVarint(ByteBuffer raw, long value)
+	{
+		while ((value & ~0x7FL) != 0)
+		{
+			raw.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		raw.put((byte) value);
+	}
+
+	private static long getVarint(ByteBuffer raw)
+	{
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do
+		{
+			b = raw.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		}
+		while (b < 0);
+		return value;
+	}
+
+	private byte[] compress(byte type, byte[] raw, int length)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(length/4 + 16);
+		out.write(type);
+		m_deflater.reset();
+		m_deflater.setInput(raw, 0, length);
+		m_deflater.finish();
+		byte[] buffer = new byte[8192];
+		while (!m_deflater.finished())
+		{
+			int written = m_deflater.deflate(buffer);
+			out.write(buffer, 0, written);
+		}
+		return out.toByteArray();
+	}
+
+	static double[] decodeKeyframe(byte[] block, int pointCount)
+	{
+		if (block[0] != KEYFRAME)
+		{
+			throw new IllegalStateException("The block is not a keyframe");
+		}
+		ByteBuffer raw = ByteBuffer.wrap(decompress(block, 8*pointCount)).order(ByteOrder.LITTLE_ENDIAN);
+		double[] values = new double[pointCount];
+		for (int i = 0; i < pointCount; i++)
+		{
+			values[i] = raw.getDouble();
+		}
+		return values;
+	}
+
+	// Adds the changes of a delta block to the values of the step before
+	static void applyDelta(byte[] block, double[] values, double quantum)
+	{
+		if (block[0] != DELTA)
+		{
+			throw new IllegalStateException("The block is not a delta");
+		}
+		ByteBuffer raw = ByteBuffer.wrap(decompress(block, getMaxDeltaLength(values.length))).order(ByteOrder.LITTLE_ENDIAN);
+		int exactCount = (int) getVarint(raw);
+		int[] exactPoints = new int[exactCount];
+		double[] exactValues = new double[exactCount];
+		int point = -1;
+		for (int i = 0; i < exactCount; i++)
+		{
+			point += (int) getVarint(raw);
+			exactPoints[i] = point;
+			exactValues[i] = raw.getDouble();
+		}
+		for (int i = 0; i < values.length; i++)
+		{
+			long zigzag = getVarint(raw);
+			long quantized = (zigzag >>> 1) ^ -(zigzag & 1);
+			values[i] += quantized*quantum;
+		}
+		for (int i = 0; i < exactCount; i++)
+		{
+			values[exactPoints[i]] = exactValues[i];
+		}
+	}
+
+	private static byte[] decompress(byte[] block, int maxLength)
+	{
+		Inflater inflater = new Inflater();
+		try
+		{
+			inflater.setInput(block, 1, block.length - 1);
+			byte[] raw = new byte[maxLength];
+			int length = 0;
+			while (!inflater.finished() && length < maxLength)
+			{
+				int read = inflater.inflate(raw, length, maxLength - length);
+				if (read == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+				{
+					throw new IllegalStateException("A field history block is truncated");
+				}
+				length += read;
+			}
+			return raw;
+		}
+		catch (DataFormatException e)
+		{
+			throw new IllegalStateException("A field history block is corrupt", e);
+		}
+		finally
+		{
+			inflater.end();
+		}
+	}
+
+	// Frees the native memory of the compressor, the store can still be read afterwards
+	public void close()
+	{
+		m_deflater.end();
+	}
+
+}// end class FieldHistoryStore
@@ -0,0 +1,186 @@
+package starClasses;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class writes a FieldHistoryStore to disk step by step while the run goes on, together with
+ * an index that FieldHistoryReader uses to go straight to any step and field. Both files are
+ * little-endian:
+ *
+ * data file:  int magic, int version, int field count, int point count, int keyframe interval,
+ *             int data offset, long unused,
+ *             for each field its quantum as a double, then a short byte length and the UTF-8 name,
+ *             padding up to the data offset, a multiple of 8,
+ *             for each step the blocks of its fields one after the other
+ * index file: int magic, int version, int field count, int record size,
+ *             for each step a record of long step number, double solution time, long offset of its
+ *             first block, int 1 for a keyframe, int unused and field count + 1 int offsets of the
+ *             blocks from the start of the step, the last one being the end of the step
+ *
+ * The index record of a step is written after its blocks, so a run that stops part way leaves a
+ * file whose indexed steps are all complete.
+ *
+ * @author cj8q5
+ *
+ */
+public class FieldHistoryWriter
+{
+	static final int MAGIC = 0x53484946;
+	static final int INDEX_MAGIC = 0x58484946;
+	// Version 2 stores the values that are not finite exactly in delta blocks
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 32;
+	static final int INDEX_HEADER_SIZE = 16;
+	static final int RECORD_FIXED_SIZE = 32;
+
+	private FieldHistoryStore m_store;
+	private RandomAccessFile m_dataFile;
+	private RandomAccessFile m_indexFile;
+	private FileChannel m_data;
+	private FileChannel m_index;
+	private ByteBuffer m_record;
+	private long m_endOfData;
+	private int m_stepsWritten = 0;
+
+	/**
+	 * @param fileToWrite path of the data file, the index is written to the same path with .idx appended
+	 * @param store the store encoding the steps, it should not hold any steps yet
+	 */
+	public FieldHistoryWriter(String fileToWrite, FieldHistoryStore store) throws IOException
+	{
+		if (store.getStepCount() != 0)
+		{
+			throw new IllegalArgumentException("The store already holds " + store.getStepCount() + " steps");
+		}
+		m_store = store;
+		m_dataFile = new RandomAccessFile(fileToWrite, "rw");
+		m_indexFile = new RandomAccessFile(getIndexFile(fileToWrite), "rw");
+		m_dataFile.setLength(0);
+		m_indexFile.setLength(0);
+		m_data = m_dataFile.getChannel();
+		m_index = m_indexFile.getChannel();
+
+		String[] names = store.getFieldNames();
+		byte[][] encodedNames = new byte[names.length][];
+		int headerSize = HEADER_SIZE;
+		for (int i = 0; i < names.length; i++)
+		{
+			encodedNames[i] = names[i].getBytes("UTF-8");
+			headerSize += 8 + 2 + encodedNames[i].length;
+		}
+		int dataOffset = (headerSize + 7) & ~7;
+		ByteBuffer header = ByteBuffer.allocate(dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(names.length).putInt(store.getPointCount());
+		header.putInt(store.getKeyframeInterval()).putInt(dataOffset).putLong(0);
+		for (int i = 0; i < names.length; i++)
+		{
+			header.putDouble(store.getQuantum(i)).putShort((short) encodedNames[i].length).put(encodedNames[i]);
+		}
+		header.position(0);
+		writeFully(m_data, header, 0);
+		m_endOfData = dataOffset;
+
+		int recordSize = getRecordSize(names.length);
+		ByteBuffer indexHeader = ByteBuffer.allocate(INDEX_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		indexHeader.putInt(INDEX_MAGIC).putInt(VERSION).putInt(names.length).putInt(recordSize).flip();
+		writeFully(m_index, indexHeader, 0);
+		m_record = ByteBuffer.allocate(recordSize).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	// Returns the path of the index file belonging to a data file
+	public static String getIndexFile(String dataFile)
+	{
+		return dataFile + ".idx";
+	}
+
+	// Returns the size of an index record, padded to a multiple of 8
+	static int getRecordSize(int fieldCount)
+	{
+		return (RECORD_FIXED_SIZE + 4*(fieldCount + 1) + 7) & ~7;
+	}
+
+	/** This method encodes the next step and writes it with its index record
+	 *
+	 * @param step the time step or coupling step number
+	 * @param time the solution time of the step
+	 * @param values the values of each field, in the order of the field names
+	 */
+	public void addStep(long step, double time, double[][] values) throws IOException
+	{
+		m_store.addStep(step, time, values);
+		writeNewSteps();
+	}
+
+	public void addStep(long step, double time, XyzTableColumns table) throws IOException
+	{
+		m_store.addStep(step, time, table);
+		writeNewSteps();
+	}
+
+	/** This method writes every step added to the store since the last call, then frees the blocks
+	 * the store no longer needs for encoding
+	 */
+	public void writeNewSteps() throws IOException
+	{
+		int fieldCount = m_store.getFieldNames().length;
+		while (m_stepsWritten < m_store.getStepCount())
+		{
+			int stepIndex = m_stepsWritten;
+			long stepStart = m_endOfData;
+			m_record.clear();
+			m_record.putLong(m_store.getStep(stepIndex)).putDouble(m_store.getTime(stepIndex)).putLong(stepStart);
+			m_record.putInt(m_store.isKeyframe(stepIndex) ? 1 : 0).putInt(0);
+			for (int field = 0; field < fieldCount; field++)
+			{
+				m_record.putInt((int) (m_endOfData - stepStart));
+				byte[] block = m_store.getBlock(stepIndex, field);
+				m_endOfData += writeFully(m_data, ByteBuffer.wrap(block), m_endOfData);
+			}
+			m_record.putInt((int) (m_endOfData - stepStart));
+			m_record.position(0);
+			writeFully(m_index, m_record, INDEX_HEADER_SIZE + (long) stepIndex*m_record.capacity());
+			m_stepsWritten++;
+		}
+		m_store.releaseWrittenBlocks();
+	}// end method writeNewSteps
+
+	public int getStepsWritten()
+	{
+		return m_stepsWritten;
+	}
+
+	// Forces both files to disk
+	public void flush() throws IOException
+	{
+		m_data.force(false);
+		m_index.force(false);
+	}
+
+	public void close() throws IOException
+	{
+		try
+		{
+			m_dataFile.close();
+		}
+		finally
+		{
+			m_indexFile.close();
+			m_store.close();
+		}
+	}
+
+	private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		int bytes = buffer.remaining();
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer, position + bytes - buffer.remaining());
+		}
+		return bytes;
+	}
+
+}// end class FieldHistoryWriter
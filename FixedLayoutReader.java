@@ -0,0 +1,161 @@
+package starClasses;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class reads the skip-lines-then-numbers input files used by DataReader. It works like the
+ * nextLine, nextInt and nextDouble methods of a Scanner but parses the bytes directly and keeps
+ * track of the line and column so a bad value can be reported exactly.
+ *
+ * @author cj8q5
+ *
+ */
+public class FixedLayoutReader
+{
+	private String m_fileName;
+	private ByteBuffer m_buffer;
+	private int m_position = 0;
+	private int m_line = 1;
+	private int m_lineStart = 0;
+
+	/** This constructor reads the whole file into memory, the input files are only a few lines long
+	 *
+	 * @param fileToRead path of the input file
+	 * @throws InputFileException if the file cannot be read
+	 */
+	public FixedLayoutReader(String fileToRead) throws InputFileException
+	{
+		m_fileName = fileToRead;
+		try
+		{
+			FileInputStream stream = new FileInputStream(fileToRead);
+			try
+			{
+				FileChannel channel = stream.getChannel();
+				if (channel.size() > Integer.MAX_VALUE)
+				{
+					throw new InputFileException(fileToRead, 0, 0, "the file is too large for an input file", null);
+				}
+				m_buffer = ByteBuffer.allocate((int) channel.size());
+				while (m_buffer.hasRemaining())
+				{
+					if (channel.read(m_buffer) < 0)
+					{
+						break;
+					}
+				}
+				m_buffer.flip();
+			}
+			finally
+			{
+				stream.close();
+			}
+		}
+		catch (IOException e)
+		{
+			throw new InputFileException(fileToRead, 0, 0, e.toString(), e);
+		}
+	}
+
+	/** This method skips the rest of the current line, the same as Scanner.nextLine
+	 *
+	 * @throws InputFileException if the end of the file has been reached
+	 */
+	public void nextLine() throws InputFileException
+	{
+		int limit = m_buffer.limit();
+		if (m_position >= limit)
+		{
+			throw error("expected another line but reached the end of the file");
+		}
+		while (m_position < limit && m_buffer.get(m_position) != '\n')
+		{
+			m_position++;
+		}
+		if (m_position < limit)
+		{
+			m_position++;
+			newLine();
+		}
+	}// end method nextLine
+
+	/** This method reads the next whitespace separated value as an int
+	 *
+	 * @return the value
+	 * @throws InputFileException if there is no value left or it is not an int
+	 */
+	public int nextInt() throws InputFileException
+	{
+		int start = nextToken();
+		try
+		{
+			return ByteNumberParser.parseInt(m_buffer, start, m_position);
+		}
+		catch (NumberFormatException e)
+		{
+			throw errorAt(start, "expected an integer: " + e.getMessage());
+		}
+	}
+
+	/** This method reads the next whitespace separated value as a double
+	 *
+	 * @return the value
+	 * @throws InputFileException if there is no value left or it is not a number
+	 */
+	public double nextDouble() throws InputFileException
+	{
+		int start = nextToken();
+		try
+		{
+			return ByteNumberParser.parseDouble(m_buffer, start, m_position);
+		}
+		catch (NumberFormatException e)
+		{
+			throw errorAt(start, "expected a number: " + e.getMessage());
+		}
+	}
+
+	/** This method skips whitespace, leaves the position after the next token and returns its start
+	 */
+	private int nextToken() throws InputFileException
+	{
+		int limit = m_buffer.limit();
+		while (m_position < limit && ByteNumberParser.isWhitespace(m_buffer.get(m_position)))
+		{
+			if (m_buffer.get(m_position++) == '\n')
+			{
+				newLine();
+			}
+		}
+		if (m_position >= limit)
+		{
+			throw error("expected a value but reached the end of the file");
+		}
+		int start = m_position;
+		while (m_position < limit && !ByteNumberParser.isWhitespace(m_buffer.get(m_position)))
+		{
+			m_position++;
+		}
+		return start;
+	}// end method nextToken
+
+	private void newLine()
+	{
+		m_line++;
+		m_lineStart = m_position;
+	}
+
+	private InputFileException error(String message)
+	{
+		return errorAt(m_position, message);
+	}
+
+	private InputFileException errorAt(int position, String message)
+	{
+		return new InputFileException(m_fileName, m_line, position - m_lineStart + 1, message, null);
+	}
+
+}// end class FixedLayoutReader
@@ -0,0 +1,101 @@
+package starClasses;
+
+import java.util.Arrays;
+
+/**
+ * This class holds a whole matrix of geometry cases with every field in its own double array.
+ * The fields are numbered in the order of the GeoData constructor and a GeoData object is
+ * only created when a case is asked for.
+ * 
+ * @author cj8q5
+ *
+ */
+public class GeoCaseTable 
+{
+	public static final int PLATE_LENGTH = 0;
+	public static final int PLATE_HEIGHT = 1;
+	public static final int PLATE_WIDTH = 2;
+	public static final int SMALL_CHANNEL_HEIGHT = 3;
+	public static final int LARGE_CHANNEL_HEIGHT = 4;
+	public static final int INLET_LENGTH = 5;
+	public static final int OUTLET_LENGTH = 6;
+	public static final int FIELD_COUNT = 7;
+	
+	private double[][] m_columns = new double[FIELD_COUNT][];
+	private GeoData[] m_cases;
+	private int m_size = 0;
+	
+	public GeoCaseTable(int initialCapacity)
+	{
+		int capacity = Math.max(initialCapacity, 1);
+		for (int field = 0; field < FIELD_COUNT; field++)
+		{
+			m_columns[field] = new double[capacity];
+		}
+		m_cases = new GeoData[capacity];
+	}
+	
+	/** This method adds a case to the end of the table
+	 * 
+	 * @param values the FIELD_COUNT values of the case in constructor order
+	 */
+	public void addCase(double[] values)
+	{
+		if (m_size == m_cases.length)
+		{
+			int capacity = m_size*2;
+			for (int field = 0; field < FIELD_COUNT; field++)
+			{
+				m_columns[field] = Arrays.copyOf(m_columns[field], capacity);
+			}
+			m_cases = Arrays.copyOf(m_cases, capacity);
+		}
+		for (int field = 0; field < FIELD_COUNT; field++)
+		{
+			m_columns[field][m_size] = values[field];
+		}
+		m_size++;
+	}// end method addCase
+	
+	public int size()
+	{
+		return m_size;
+	}
+	
+	/** This method returns the array holding one field for every case, only the first size() entries are used
+	 * 
+	 * @param field one of the field constants such as PLATE_LENGTH
+	 * @return the column array
+	 */
+	public double[] getColumn(int field)
+	{
+		return m_columns[field];
+	}
+	
+	public double getValue(int caseIndex, int field)
+	{
+		return m_columns[field][caseIndex];
+	}
+	
+	/** This method returns the case as a GeoData object, creating it on the first request
+	 * 
+	 * @param caseIndex the row of the case in the matrix
+	 * @return the geometry data of the case
+	 */
+	public GeoData getCase(int caseIndex)
+	{
+		if (caseIndex >= m_size)
+		{
+			throw new IndexOutOfBoundsException("Case " + caseIndex + " of " + m_size);
+		}
+		if (m_cases[caseIndex] == null)
+		{
+			double[][] c = m_columns;
+			m_cases[caseIndex] = new GeoData(c[PLATE_LENGTH][caseIndex], c[PLATE_HEIGHT][caseIndex], c[PLATE_WIDTH][caseIndex], 
+					c[SMALL_CHANNEL_HEIGHT][caseIndex], c[LARGE_CHANNEL_HEIGHT][caseIndex], 
+					c[INLET_LENGTH][caseIndex], c[OUTLET_LENGTH][caseIndex]);
+		}
+		return m_cases[caseIndex];
+	}// end method getCase
+	
+}// end class GeoCaseTable
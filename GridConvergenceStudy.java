@@ -0,0 +1,338 @@
+package starClasses;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This class turns the results of a mesh density sweep into a mesh independence verdict with the
+ * three grid method of Celik et al. (ASME J. Fluids Eng. 2008), which builds on Roache's grid
+ * convergence index. The three finest meshes give the observed order of convergence, found by
+ * fixed point iteration so the refinement ratios do not have to be equal, the Richardson
+ * extrapolated value and the grid convergence index (GCI) of the fine and medium meshes.
+ *
+ * Every other case is then compared with the extrapolated value, and the coarsest mesh whose
+ * error, scaled by the 1.25 safety factor of the GCI, is within the tolerance is recommended.
+ * No mesh is recommended when the three finest meshes do not show monotonic convergence, that is
+ * when their results oscillate, when the change between the two finest meshes is larger than the
+ * change between the two coarser ones, when no finite order can be found or when the order gives
+ * no refinement gain (r21^p <= 1). The extrapolated value is then NaN rather than a guess.
+ *
+ * The representative cell size of a case is (1/cellCount)^(1/dimension). Only ratios of cell
+ * sizes are used, so the size of the domain does not matter.
+ *
+ * @author cj8q5
+ *
+ */
+public class GridConvergenceStudy
+{
+	// Safety factor of the GCI for studies with three or more meshes
+	public static final double SAFETY_FACTOR = 1.25;
+
+	private static final int MAX_ITERATIONS = 100;
+	private static final double ORDER_TOLERANCE = 1e-8;
+
+	private int m_dimension;
+	private List<long[]> m_cases = new ArrayList<long[]>();
+	private List<Double> m_values = new ArrayList<Double>();
+
+	// Results of analyze, the cases are sorted from the finest to the coarsest mesh
+	private boolean m_analyzed = false;
+	private int[] m_caseIds;
+	private double[] m_cellSizes;
+	private double[] m_sortedValues;
+	private double m_observedOrder;
+	private double m_extrapolatedValue;
+	private double m_fineGci;
+	private double m_mediumGci;
+	private boolean m_oscillatory;
+	private boolean m_converged;
+
+	/**
+	 * @param dimension 3 for volume meshes, 2 for a mesh counted in one plane
+	 */
+	public GridConvergenceStudy(int dimension)
+	{
+		m_dimension = dimension;
+	}
+
+	/** This method adds the result of one case
+	 *
+	 * @param caseId the number the case is reported under by recommendCase
+	 * @param cellCount the number of cells in the mesh of the case
+	 * @param value the report value of the case, e.g. a pressure drop
+	 */
+	public void addCase(int caseId, long cellCount, double value)
+	{
+		if (cellCount <= 0)
+		{
+			throw new IllegalArgumentException("Case " + caseId + " has " + cellCount + " cells");
+		}
+		m_cases.add(new long[] {caseId, cellCount});
+		m_values.add(value);
+		m_analyzed = false;
+	}
+
+	/** This method builds a study from the pressure drops of a sweep, cases without results are skipped
+	 *
+	 * @param results the results of the sweep
+	 * @param channel SweepResultStore.LARGE_CHANNEL or SweepResultStore.SMALL_CHANNEL
+	 * @param dimension 3 for volume meshes
+	 */
+	public static GridConvergenceStudy fromPressureDrops(SweepResultStore results, int channel, int dimension)
+	{
+		GridConvergenceStudy study = new GridConvergenceStudy(dimension);
+		for (int i = 0; i < results.getCaseCount(); i++)
+		{
+			if (results.hasResults(i))
+			{
+				study.addCase(i, results.getCellCount(i), results.getPressureDrop(i, channel));
+			}
+		}
+		return study;
+	}
+
+	/** This method computes the observed order, the extrapolated value and the GCI from the three finest meshes.
+	 * When several cases share a cell count only the first one added is used.
+	 */
+	public void analyze()
+	{
+		Integer[] order = new Integer[m_cases.size()];
+		for (int i = 0; i < order.length; i++)
+		{
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			public int compare(Integer a, Integer b)
+			{
+				long cellsA = m_cases.get(a)[1];
+				long cellsB = m_cases.get(b)[1];
+				return (cellsA > cellsB) ? -1 : ((cellsA == cellsB) ? a.compareTo(b) : 1);
+			}
+		});
+
+		int count = 0;
+		m_caseIds = new int[order.length];
+		m_cellSizes = new double[order.length];
+		m_sortedValues = new double[order.length];
+		for (int i = 0; i < order.length; i++)
+		{
+			long cellCount = m_cases.get(order[i])[1];
+			if (i > 0 && cellCount == m_cases.get(order[i - 1])[1])
+			{
+				continue;
+			}
+			m_caseIds[count] = (int) m_cases.get(order[i])[0];
+			m_cellSizes[count] = Math.pow(1.0/cellCount, 1.0/m_dimension);
+			m_sortedValues[count] = m_values.get(order[i]);
+			count++;
+		}
+		if (count < 3)
+		{
+			throw new IllegalStateException("A grid convergence study needs at least three meshes, " + count + " were given");
+		}
+		m_caseIds = Arrays.copyOf(m_caseIds, count);
+		m_cellSizes = Arrays.copyOf(m_cellSizes, count);
+		m_sortedValues = Arrays.copyOf(m_sortedValues, count);
+
+		double phi1 = m_sortedValues[0];
+		double phi2 = m_sortedValues[1];
+		double phi3 = m_sortedValues[2];
+		double r21 = m_cellSizes[1]/m_cellSizes[0];
+		double r32 = m_cellSizes[2]/m_cellSizes[1];
+		double e21 = phi2 - phi1;
+		double e32 = phi3 - phi2;
+		m_oscillatory = (e21*e32 < 0.0);
+
+		m_observedOrder = Double.NaN;
+		m_extrapolatedValue = Double.NaN;
+		m_fineGci = Double.NaN;
+		m_mediumGci = Double.NaN;
+		m_converged = false;
+		// Oscillating results, the two finest meshes agreeing after a third that does not, or a change growing
+		// as the mesh is refined show no convergence
+		if (e21 == 0.0 && e32 == 0.0)
+		{
+			// The three finest meshes agree exactly, nothing is left to extrapolate
+			m_extrapolatedValue = phi1;
+			m_fineGci = 0.0;
+			m_mediumGci = 0.0;
+			m_converged = true;
+		}
+		else if (e21 != 0.0 && !m_oscillatory && Math.abs(e21) < Math.abs(e32))
+		{
+			m_observedOrder = observedOrder(e21, e32, r21, r32);
+			double rp = Math.pow(r21, m_observedOrder);
+			if (!Double.isNaN(m_observedOrder) && rp > 1.0)
+			{
+				m_extrapolatedValue = (rp*phi1 - phi2)/(rp - 1.0);
+				double relativeError21 = Math.abs(e21/phi1);
+				double relativeError32 = Math.abs(e32/phi2);
+				m_fineGci = SAFETY_FACTOR*relativeError21/(rp - 1.0);
+				m_mediumGci = SAFETY_FACTOR*relativeError32/(Math.pow(r32, m_observedOrder) - 1.0);
+				m_converged = true;
+			}
+		}
+		m_analyzed = true;
+	}// end method analyze
+
+	/** This method solves p = |ln|e32/e21| + q(p)|/ln(r21) with q(p) = ln((r21^p - s)/(r32^p - s)) by fixed point iteration
+	 *
+	 * @return the observed order, NaN when the iteration does not settle on a finite order
+	 */
+	static double observedOrder(double e21, double e32, double r21, double r32)
+	{
+		if (e32 == 0.0)
+		{
+			return Double.NaN;
+		}
+		double s = Math.signum(e32/e21);
+		double logRatio = Math.log(Math.abs(e32/e21));
+		double logR21 = Math.log(r21);
+		double p = Math.abs(logRatio)/logR21;
+		for (int i = 0; i < MAX_ITERATIONS; i++)
+		{
+			double q = Math.log((Math.pow(r21, p) - s)/(Math.pow(r32, p) - s));
+			double next = Math.abs(logRatio + q)/logR21;
+			if (Double.isNaN(next) || Double.isInfinite(next))
+			{
+				return Double.NaN;
+			}
+			if (Math.abs(next - p) < ORDER_TOLERANCE)
+			{
+				return next;
+			}
+			p = next;
+		}
+		return Double.NaN;
+	}// end method observedOrder
+
+	/** This method recommends the coarsest mesh whose value is close enough to the extrapolated value
+	 *
+	 * @param tolerance the largest allowed relative error, e.g. 0.01 for 1 %
+	 * @return the id of the recommended case, or -1 if the three finest meshes do not converge (see isConverged)
+	 * 		or not even the finest mesh is within the tolerance
+	 */
+	public int recommendCase(double tolerance)
+	{
+		checkAnalyzed();
+		if (!m_converged)
+		{
+			return -1;
+		}
+		for (int i = m_sortedValues.length - 1; i >= 0; i--)
+		{
+			if (getRelativeError(i) <= tolerance)
+			{
+				// Every finer mesh has to agree too, otherwise an oscillating coarse result could pass by chance
+				boolean finerWithin = true;
+				for (int j = i - 1; j >= 0 && finerWithin; j--)
+				{
+					finerWithin = getRelativeError(j) <= tolerance;
+				}
+				if (finerWithin)
+				{
+					return m_caseIds[i];
+				}
+			}
+		}
+		return -1;
+	}// end method recommendCase
+
+	/** This method recommends a mesh like recommendCase(tolerance), but only when the three finest meshes
+	 * are also in the asymptotic range
+	 *
+	 * @param tolerance the largest allowed relative error, e.g. 0.01 for 1 %
+	 * @param asymptoticTolerance how far getAsymptoticRatio may be from 1, e.g. 0.1
+	 * @return the id of the recommended case, or -1 as for recommendCase(tolerance) or when the ratio is further from 1
+	 */
+	public int recommendCase(double tolerance, double asymptoticTolerance)
+	{
+		checkAnalyzed();
+		if (!m_converged || !(Math.abs(getAsymptoticRatio() - 1.0) <= asymptoticTolerance))
+		{
+			return -1;
+		}
+		return recommendCase(tolerance);
+	}
+
+	// Returns the GCI style error of a mesh, sorted from fine to coarse, against the extrapolated value
+	private double getRelativeError(int sortedIndex)
+	{
+		double reference = (m_extrapolatedValue == 0.0) ? 1.0 : Math.abs(m_extrapolatedValue);
+		return SAFETY_FACTOR*Math.abs(m_sortedValues[sortedIndex] - m_extrapolatedValue)/reference;
+	}
+
+	public double getObservedOrder()
+	{
+		checkAnalyzed();
+		return m_observedOrder;
+	}
+
+	// Returns the Richardson extrapolated value, NaN when the three finest meshes do not converge
+	public double getExtrapolatedValue()
+	{
+		checkAnalyzed();
+		return m_extrapolatedValue;
+	}
+
+	// Returns the relative GCI of the finest mesh
+	public double getFineGci()
+	{
+		checkAnalyzed();
+		return m_fineGci;
+	}
+
+	// Returns the relative GCI of the second finest mesh
+	public double getMediumGci()
+	{
+		checkAnalyzed();
+		return m_mediumGci;
+	}
+
+	/** This method returns GCI32/(r21^p GCI21), which is close to 1 when the meshes are in the asymptotic range
+	 *
+	 * @return the ratio, 1 when the three finest meshes agree exactly and NaN when they do not converge
+	 */
+	public double getAsymptoticRatio()
+	{
+		checkAnalyzed();
+		if (m_converged && m_fineGci == 0.0)
+		{
+			return 1.0;
+		}
+		return m_mediumGci/(Math.pow(m_cellSizes[1]/m_cellSizes[0], m_observedOrder)*m_fineGci);
+	}
+
+	// Returns true when the three finest meshes converge with alternating sign
+	public boolean isOscillatory()
+	{
+		checkAnalyzed();
+		return m_oscillatory;
+	}
+
+	// Returns true when the three finest meshes converge monotonically with a finite order, only then is a mesh recommended
+	public boolean isConverged()
+	{
+		checkAnalyzed();
+		return m_converged;
+	}
+
+	// Returns the ids of the finest, medium and coarse case used for the analysis
+	public int[] getAnalyzedCases()
+	{
+		checkAnalyzed();
+		return new int[] {m_caseIds[0], m_caseIds[1], m_caseIds[2]};
+	}
+
+	private void checkAnalyzed()
+	{
+		if (!m_analyzed)
+		{
+			throw new IllegalStateException("Call analyze before reading the results of the study");
+		}
+	}
+
+}// end class GridConvergenceStudy
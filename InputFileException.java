@@ -0,0 +1,48 @@
+package starClasses;
+
+/**
+ * This exception reports a problem in an input file together with the file, line and column
+ * where it was found, so batch runs can log it instead of popping up a dialog
+ * 
+ * @author cj8q5
+ *
+ */
+public class InputFileException extends Exception 
+{
+	private static final long serialVersionUID = 1L;
+	
+	private String m_file;
+	private int m_line;
+	private int m_column;
+	
+	/** 
+	 * @param file the path of the input file
+	 * @param line the line of the problem starting at 1, or 0 if the file could not be read or the problem is not tied to a line
+	 * @param column the column of the problem starting at 1, or 0 if it applies to the whole line
+	 * @param message what was wrong
+	 * @param cause the underlying exception, may be null
+	 */
+	public InputFileException(String file, int line, int column, String message, Throwable cause)
+	{
+		super(file + ":" + line + ":" + column + ": " + message, cause);
+		m_file = file;
+		m_line = line;
+		m_column = column;
+	}
+	
+	public String getFile()
+	{
+		return m_file;
+	}
+	
+	public int getLine()
+	{
+		return m_line;
+	}
+	
+	public int getColumn()
+	{
+		return m_column;
+	}
+	
+}// end class InputFileException
@@ -0,0 +1,195 @@
+package starClasses;
+
+/**
+ * This class estimates the cell count of the channel mesh from the element counts of a case.
+ * The count is kept in a long so fine meshes cannot overflow, and an estimator created for one
+ * case can be changed one dimension at a time with only the affected terms recomputed.
+ * The static methods compute the counts of a whole case table in one pass over its columns
+ * so a refinement search can rank candidates without creating any objects.
+ *
+ * cells = ((largeInletY + smallInletY + plateInletY)*inletX + (largeOutletY + smallOutletY + plateOutletY)*outletX
+ *          + smChannelX*smChannelY + lgChannelX*lgChannelY)*extrudeCell
+ *
+ * @author cj8q5
+ *
+ */
+public class MeshDensityEstimator
+{
+	private int[] m_values = new int[MeshElementCaseTable.FIELD_COUNT];
+
+	// Partial sums of the formula, updated when one of their inputs changes
+	private long m_inletRows;
+	private long m_outletRows;
+	private long m_cellsPerLayer;
+
+	public MeshDensityEstimator(MeshElementData mED)
+	{
+		m_values[MeshElementCaseTable.EXTRUDE_CELL] = mED.getExtrudeCell();
+		m_values[MeshElementCaseTable.INLET_X] = mED.getInletX();
+		m_values[MeshElementCaseTable.LARGE_INLET_Y] = mED.getLargeInletY();
+		m_values[MeshElementCaseTable.SMALL_INLET_Y] = mED.getSmallInletY();
+		m_values[MeshElementCaseTable.PLATE_INLET_Y] = mED.getPlateInletY();
+		m_values[MeshElementCaseTable.OUTLET_X] = mED.getOutletX();
+		m_values[MeshElementCaseTable.LARGE_OUTLET_Y] = mED.getLargeOutletY();
+		m_values[MeshElementCaseTable.SMALL_OUTLET_Y] = mED.getSmallOutletY();
+		m_values[MeshElementCaseTable.PLATE_OUTLET_Y] = mED.getPlateOutletY();
+		m_values[MeshElementCaseTable.SM_CHANNEL_X] = mED.getSmChannelX();
+		m_values[MeshElementCaseTable.SM_CHANNEL_Y] = mED.getSmChannelY();
+		m_values[MeshElementCaseTable.LG_CHANNEL_X] = mED.getLgChannelX();
+		m_values[MeshElementCaseTable.LG_CHANNEL_Y] = mED.getLgChannelY();
+
+		int[] v = m_values;
+		m_inletRows = (long) v[MeshElementCaseTable.LARGE_INLET_Y] + v[MeshElementCaseTable.SMALL_INLET_Y] + v[MeshElementCaseTable.PLATE_INLET_Y];
+		m_outletRows = (long) v[MeshElementCaseTable.LARGE_OUTLET_Y] + v[MeshElementCaseTable.SMALL_OUTLET_Y] + v[MeshElementCaseTable.PLATE_OUTLET_Y];
+		m_cellsPerLayer = m_inletRows*v[MeshElementCaseTable.INLET_X] + m_outletRows*v[MeshElementCaseTable.OUTLET_X] +
+				(long) v[MeshElementCaseTable.SM_CHANNEL_X]*v[MeshElementCaseTable.SM_CHANNEL_Y] +
+				(long) v[MeshElementCaseTable.LG_CHANNEL_X]*v[MeshElementCaseTable.LG_CHANNEL_Y];
+	}
+
+	/** This method changes one element count and updates the cell count from the difference
+	 *
+	 * @param field one of the MeshElementCaseTable field constants such as INLET_X
+	 * @param value the new element count
+	 */
+	public void setElementCount(int field, int value)
+	{
+		int[] v = m_values;
+		long delta = (long) value - v[field];
+		switch (field)
+		{
+			case MeshElementCaseTable.INLET_X:
+				m_cellsPerLayer += delta*m_inletRows;
+				break;
+			case MeshElementCaseTable.LARGE_INLET_Y:
+			case MeshElementCaseTable.SMALL_INLET_Y:
+			case MeshElementCaseTable.PLATE_INLET_Y:
+				m_inletRows += delta;
+				m_cellsPerLayer += delta*v[MeshElementCaseTable.INLET_X];
+				break;
+			case MeshElementCaseTable.OUTLET_X:
+				m_cellsPerLayer += delta*m_outletRows;
+				break;
+			case MeshElementCaseTable.LARGE_OUTLET_Y:
+			case MeshElementCaseTable.SMALL_OUTLET_Y:
+			case MeshElementCaseTable.PLATE_OUTLET_Y:
+				m_outletRows += delta;
+				m_cellsPerLayer += delta*v[MeshElementCaseTable.OUTLET_X];
+				break;
+			case MeshElementCaseTable.SM_CHANNEL_X:
+				m_cellsPerLayer += delta*v[MeshElementCaseTable.SM_CHANNEL_Y];
+				break;
+			case MeshElementCaseTable.SM_CHANNEL_Y:
+				m_cellsPerLayer += delta*v[MeshElementCaseTable.SM_CHANNEL_X];
+				break;
+			case MeshElementCaseTable.LG_CHANNEL_X:
+				m_cellsPerLayer += delta*v[MeshElementCaseTable.LG_CHANNEL_Y];
+				break;
+			case MeshElementCaseTable.LG_CHANNEL_Y:
+				m_cellsPerLayer += delta*v[MeshElementCaseTable.LG_CHANNEL_X];
+				break;
+			case MeshElementCaseTable.EXTRUDE_CELL:
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown mesh element field " + field);
+		}
+		v[field] = value;
+	}// end method setElementCount
+
+	public int getElementCount(int field)
+	{
+		return m_values[field];
+	}
+
+	public long getCellCount()
+	{
+		return m_cellsPerLayer*m_values[MeshElementCaseTable.EXTRUDE_CELL];
+	}
+
+	/** This method computes the cell count of one case
+	 */
+	public static long cellCount(int extrudeCell, int inletX, int largeInletY, int smallInletY, int plateInletY,
+			int outletX, int largeOutletY, int smallOutletY, int plateOutletY,
+			int smChannelX, int smChannelY, int lgChannelX, int lgChannelY)
+	{
+		return (((long) largeInletY + smallInletY + plateInletY)*inletX +
+				((long) largeOutletY + smallOutletY + plateOutletY)*outletX +
+				(long) smChannelX*smChannelY + (long) lgChannelX*lgChannelY)*extrudeCell;
+	}
+
+	/** This method computes the cell count of every case in a table in one pass over its columns
+	 *
+	 * @param table the candidate cases
+	 * @param cellCounts receives the cell count of each case, must hold at least table.size() values
+	 */
+	public static void computeCellCounts(MeshElementCaseTable table, long[] cellCounts)
+	{
+		int[] extrude = table.getColumn(MeshElementCaseTable.EXTRUDE_CELL);
+		int[] inletX = table.getColumn(MeshElementCaseTable.INLET_X);
+		int[] largeInletY = table.getColumn(MeshElementCaseTable.LARGE_INLET_Y);
+		int[] smallInletY = table.getColumn(MeshElementCaseTable.SMALL_INLET_Y);
+		int[] plateInletY = table.getColumn(MeshElementCaseTable.PLATE_INLET_Y);
+		int[] outletX = table.getColumn(MeshElementCaseTable.OUTLET_X);
+		int[] largeOutletY = table.getColumn(MeshElementCaseTable.LARGE_OUTLET_Y);
+		int[] smallOutletY = table.getColumn(MeshElementCaseTable.SMALL_OUTLET_Y);
+		int[] plateOutletY = table.getColumn(MeshElementCaseTable.PLATE_OUTLET_Y);
+		int[] smX = table.getColumn(MeshElementCaseTable.SM_CHANNEL_X);
+		int[] smY = table.getColumn(MeshElementCaseTable.SM_CHANNEL_Y);
+		int[] lgX = table.getColumn(MeshElementCaseTable.LG_CHANNEL_X);
+		int[] lgY = table.getColumn(MeshElementCaseTable.LG_CHANNEL_Y);
+
+		// A plain loop over primitive columns, which the JIT can unroll and vectorize
+		int size = table.size();
+		for (int i = 0; i < size; i++)
+		{
+			cellCounts[i] = (((long) largeInletY[i] + smallInletY[i] + plateInletY[i])*inletX[i] +
+					((long) largeOutletY[i] + smallOutletY[i] + plateOutletY[i])*outletX[i] +
+					(long) smX[i]*smY[i] + (long) lgX[i]*lgY[i])*extrude[i];
+		}
+	}// end method computeCellCounts
+
+	/** This method orders case numbers by increasing cell count without allocating, using a heap sort
+	 *
+	 * @param cellCounts the cell count of each case
+	 * @param count the number of cases to order
+	 * @param order receives the case numbers from the coarsest to the finest case
+	 */
+	public static void sortByCellCount(long[] cellCounts, int count, int[] order)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			order[i] = i;
+		}
+		for (int i = count/2 - 1; i >= 0; i--)
+		{
+			siftDown(cellCounts, order, i, count);
+		}
+		for (int end = count - 1; end > 0; end--)
+		{
+			int largest = order[0];
+			order[0] = order[end];
+			order[end] = largest;
+			siftDown(cellCounts, order, 0, end);
+		}
+	}// end method sortByCellCount
+
+	private static void siftDown(long[] cellCounts, int[] order, int root, int end)
+	{
+		int item = order[root];
+		while (2*root + 1 < end)
+		{
+			int child = 2*root + 1;
+			if (child + 1 < end && cellCounts[order[child + 1]] > cellCounts[order[child]])
+			{
+				child++;
+			}
+			if (cellCounts[order[child]] <= cellCounts[item])
+			{
+				break;
+			}
+			order[root] = order[child];
+			root = child;
+		}
+		order[root] = item;
+	}
+
+}// end class MeshDensityEstimator
@@ -0,0 +1,108 @@
+package starClasses;
+
+import java.util.Arrays;
+
+/**
+ * This class holds a whole matrix of mesh element cases with every field in its own int array.
+ * The fields are numbered in the order of the MeshElementData constructor and a MeshElementData
+ * object is only created when a case is asked for.
+ * 
+ * @author cj8q5
+ *
+ */
+public class MeshElementCaseTable 
+{
+	public static final int EXTRUDE_CELL = 0;
+	public static final int INLET_X = 1;
+	public static final int LARGE_INLET_Y = 2;
+	public static final int SMALL_INLET_Y = 3;
+	public static final int PLATE_INLET_Y = 4;
+	public static final int OUTLET_X = 5;
+	public static final int LARGE_OUTLET_Y = 6;
+	public static final int SMALL_OUTLET_Y = 7;
+	public static final int PLATE_OUTLET_Y = 8;
+	public static final int SM_CHANNEL_X = 9;
+	public static final int SM_CHANNEL_Y = 10;
+	public static final int LG_CHANNEL_X = 11;
+	public static final int LG_CHANNEL_Y = 12;
+	public static final int FIELD_COUNT = 13;
+	
+	private int[][] m_columns = new int[FIELD_COUNT][];
+	private MeshElementData[] m_cases;
+	private int m_size = 0;
+	
+	public MeshElementCaseTable(int initialCapacity)
+	{
+		int capacity = Math.max(initialCapacity, 1);
+		for (int field = 0; field < FIELD_COUNT; field++)
+		{
+			m_columns[field] = new int[capacity];
+		}
+		m_cases = new MeshElementData[capacity];
+	}
+	
+	/** This method adds a case to the end of the table
+	 * 
+	 * @param values the FIELD_COUNT values of the case in constructor order
+	 */
+	public void addCase(int[] values)
+	{
+		if (m_size == m_cases.length)
+		{
+			int capacity = m_size*2;
+			for (int field = 0; field < FIELD_COUNT; field++)
+			{
+				m_columns[field] = Arrays.copyOf(m_columns[field], capacity);
+			}
+			m_cases = Arrays.copyOf(m_cases, capacity);
+		}
+		for (int field = 0; field < FIELD_COUNT; field++)
+		{
+			m_columns[field][m_size] = values[field];
+		}
+		m_size++;
+	}// end method addCase
+	
+	public int size()
+	{
+		return m_size;
+	}
+	
+	/** This method returns the array holding one field for every case, only the first size() entries are used
+	 * 
+	 * @param field one of the field constants such as INLET_X
+	 * @return the column array
+	 */
+	public int[] getColumn(int field)
+	{
+		return m_columns[field];
+	}
+	
+	public int getValue(int caseIndex, int field)
+	{
+		return m_columns[field][caseIndex];
+	}
+	
+	/** This method returns the case as a MeshElementData object, creating it on the first request
+	 * 
+	 * @param caseIndex the row of the case in the matrix
+	 * @return the mesh element data of the case
+	 */
+	public MeshElementData getCase(int caseIndex)
+	{
+		if (caseIndex >= m_size)
+		{
+			throw new IndexOutOfBoundsException("Case " + caseIndex + " of " + m_size);
+		}
+		if (m_cases[caseIndex] == null)
+		{
+			int[][] c = m_columns;
+			m_cases[caseIndex] = new MeshElementData(c[EXTRUDE_CELL][caseIndex], c[INLET_X][caseIndex], 
+					c[LARGE_INLET_Y][caseIndex], c[SMALL_INLET_Y][caseIndex], c[PLATE_INLET_Y][caseIndex], 
+					c[OUTLET_X][caseIndex], c[LARGE_OUTLET_Y][caseIndex], c[SMALL_OUTLET_Y][caseIndex], c[PLATE_OUTLET_Y][caseIndex], 
+					c[SM_CHANNEL_X][caseIndex], c[SM_CHANNEL_Y][caseIndex], c[LG_CHANNEL_X][caseIndex], c[LG_CHANNEL_Y][caseIndex]);
+		}
+		return m_cases[caseIndex];
+	}// end method getCase
+	
+}// end class MeshElementCaseTable
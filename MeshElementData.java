@@ -32,10 +32,16 @@ public class MeshElementData
 	private int m_lgChannelY;
 	
 	// Random variables
+    private long m_cellCount;
     private double m_meshDensity;
-    private double[] m_maxPressures;
-    private double[] m_minPressures;
-    private double[] m_pressureDrops;
+    
+    // Results for the large channel at index 0 and the small channel at index 1
+    private double[] m_maxPressures = new double[2];
+    private double[] m_minPressures = new double[2];
+    private double[] m_pressureDrops = new double[2];
+    private int m_iterationsUsed = 0;
+    private int m_coldStartDelta = 0;
+    private double m_solveSeconds = 0.0;
 
     public MeshElementData(int extrudeCell, int inletX, int largeInletY, int smallInletY, int plateInletY, 
     		int outletX, int largeOutletY, int smallOutletY, int plateOutletY,
@@ -57,9 +63,11 @@ public class MeshElementData
     	m_smChannelY = smChannelY;
     	m_lgChannelX = lgChannelX;
     	m_lgChannelY = lgChannelY;
-        m_meshDensity = (((largeInletY + smallInletY + plateInletY)*inletX) +
-        		((largeOutletY + smallOutletY + plateOutletY)*outletX) + 
-        		(smChannelX*smChannelY) + (lgChannelX*lgChannelY))*extrudeCell;
+        
+        // Computed in long arithmetic, the int products overflow on fine meshes
+        m_cellCount = MeshDensityEstimator.cellCount(extrudeCell, inletX, largeInletY, smallInletY, plateInletY, 
+        		outletX, largeOutletY, smallOutletY, plateOutletY, smChannelX, smChannelY, lgChannelX, lgChannelY);
+        m_meshDensity = m_cellCount;
     }
 
     // Getter methods to provide access to the member variables
@@ -138,10 +146,9 @@ public class MeshElementData
     	return m_minPressures;
     }
     
+    // The drops are updated whenever the max or min pressures are set
     public double[] getPressureDrops()
     {
-    	m_pressureDrops[0] = m_maxPressures[0] - m_minPressures[0];
-    	m_pressureDrops[1] = m_maxPressures[1] - m_minPressures[1];
     	return m_pressureDrops;
     }
         
@@ -150,6 +157,11 @@ public class MeshElementData
     	return m_meshDensity; 
     }
     
+    public long getCellCount()
+    {
+    	return m_cellCount;
+    }
+    
     /**
      * When the simulation has run, important values will be stored in
      * the MeshData object using the method.
@@ -158,12 +170,56 @@ public class MeshElementData
     {
         m_maxPressures[0] = maxPressureLg;
         m_maxPressures[1] = maxPressureSm;
+        updatePressureDrops();
     }
     
     public void setMinPressures(double minPressureLg, double minPressureSm) 
     {
         m_minPressures[0] = minPressureLg;
         m_minPressures[1] = minPressureSm;
+        updatePressureDrops();
+    }
+    
+    // Stores the number of iterations the case actually ran
+    public void setIterationsUsed(int iterationsUsed)
+    {
+    	m_iterationsUsed = iterationsUsed;
+    }
+    
+    public int getIterationsUsed()
+    {
+    	return m_iterationsUsed;
+    }
+    
+    /** This method stores how many fewer iterations a warm started case used than the last case started
+     * from scratch. That case ran on another mesh, so the delta is not what the warm start saved on this
+     * mesh, only a guide to it. Cases started from scratch store 0.
+     */
+    public void setColdStartDelta(int coldStartDelta)
+    {
+    	m_coldStartDelta = coldStartDelta;
+    }
+    
+    public int getColdStartDelta()
+    {
+    	return m_coldStartDelta;
+    }
+    
+    // Stores the wall time the solver spent on the case
+    public void setSolveSeconds(double solveSeconds)
+    {
+    	m_solveSeconds = solveSeconds;
+    }
+    
+    public double getSolveSeconds()
+    {
+    	return m_solveSeconds;
+    }
+    
+    private void updatePressureDrops()
+    {
+    	m_pressureDrops[0] = m_maxPressures[0] - m_minPressures[0];
+    	m_pressureDrops[1] = m_maxPressures[1] - m_minPressures[1];
     }
     
 }//end MeshData
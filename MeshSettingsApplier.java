@@ -0,0 +1,20 @@
+package starClasses;
+
+/**
+ * This interface is what SimRunner needs to put the element counts and spacings of a case into the
+ * mesh operations of the model before the volume mesh is regenerated. DirectedMeshApplier does it
+ * for the patch curves of directed mesh operations, a model meshed another way implements its own.
+ *
+ * @author cj8q5
+ *
+ */
+public interface MeshSettingsApplier
+{
+	/** This method sets the mesh operations of the model up for a case
+	 *
+	 * @param mED the element counts of the case
+	 * @param mSD the spacings of the case
+	 */
+	public void applyMeshSettings(MeshElementData mED, MeshSpacingData mSD);
+
+}// end interface MeshSettingsApplier
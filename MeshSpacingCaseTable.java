@@ -0,0 +1,103 @@
+package starClasses;
+
+import java.util.Arrays;
+
+/**
+ * This class holds a whole matrix of mesh spacing cases with every field in its own double array.
+ * The fields are numbered in the order of the MeshSpacingData constructor and a MeshSpacingData
+ * object is only created when a case is asked for.
+ * 
+ * @author cj8q5
+ *
+ */
+public class MeshSpacingCaseTable 
+{
+	public static final int INLET_SPACING_X = 0;
+	public static final int INLET_SPACING_Y = 1;
+	public static final int OUTLET_SPACING_X = 2;
+	public static final int OUTLET_SPACING_Y = 3;
+	public static final int SM_CHANNEL_SPACING_X = 4;
+	public static final int SM_CHANNEL_SPACING_Y = 5;
+	public static final int LG_CHANNEL_SPACING_X = 6;
+	public static final int LG_CHANNEL_SPACING_Y = 7;
+	public static final int FIELD_COUNT = 8;
+	
+	private double[][] m_columns = new double[FIELD_COUNT][];
+	private MeshSpacingData[] m_cases;
+	private int m_size = 0;
+	
+	public MeshSpacingCaseTable(int initialCapacity)
+	{
+		int capacity = Math.max(initialCapacity, 1);
+		for (int field = 0; field < FIELD_COUNT; field++)
+		{
+			m_columns[field] = new double[capacity];
+		}
+		m_cases = new MeshSpacingData[capacity];
+	}
+	
+	/** This method adds a case to the end of the table
+	 * 
+	 * @param values the FIELD_COUNT values of the case in constructor order
+	 */
+	public void addCase(double[] values)
+	{
+		if (m_size == m_cases.length)
+		{
+			int capacity = m_size*2;
+			for (int field = 0; field < FIELD_COUNT; field++)
+			{
+				m_columns[field] = Arrays.copyOf(m_columns[field], capacity);
+			}
+			m_cases = Arrays.copyOf(m_cases, capacity);
+		}
+		for (int field = 0; field < FIELD_COUNT; field++)
+		{
+			m_columns[field][m_size] = values[field];
+		}
+		m_size++;
+	}// end method addCase
+	
+	public int size()
+	{
+		return m_size;
+	}
+	
+	/** This method returns the array holding one field for every case, only the first size() entries are used
+	 * 
+	 * @param field one of the field constants such as INLET_SPACING_X
+	 * @return the column array
+	 */
+	public double[] getColumn(int field)
+	{
+		return m_columns[field];
+	}
+	
+	public double getValue(int caseIndex, int field)
+	{
+		return m_columns[field][caseIndex];
+	}
+	
+	/** This method returns the case as a MeshSpacingData object, creating it on the first request
+	 * 
+	 * @param caseIndex the row of the case in the matrix
+	 * @return the mesh spacing data of the case
+	 */
+	public MeshSpacingData getCase(int caseIndex)
+	{
+		if (caseIndex >= m_size)
+		{
+			throw new IndexOutOfBoundsException("Case " + caseIndex + " of " + m_size);
+		}
+		if (m_cases[caseIndex] == null)
+		{
+			double[][] c = m_columns;
+			m_cases[caseIndex] = new MeshSpacingData(c[INLET_SPACING_X][caseIndex], c[INLET_SPACING_Y][caseIndex], 
+					c[OUTLET_SPACING_X][caseIndex], c[OUTLET_SPACING_Y][caseIndex], 
+					c[SM_CHANNEL_SPACING_X][caseIndex], c[SM_CHANNEL_SPACING_Y][caseIndex], 
+					c[LG_CHANNEL_SPACING_X][caseIndex], c[LG_CHANNEL_SPACING_Y][caseIndex]);
+		}
+		return m_cases[caseIndex];
+	}// end method getCase
+	
+}// end class MeshSpacingCaseTable
@@ -1,62 +1,30 @@
 package starClasses;
 
 
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 
 import javax.swing.JOptionPane;
 
 public class NewDataReader 
 {
 
-	private Map<String, Double> m_doubleParameters = new HashMap<String, Double>();
-	private Map<String, Integer> m_intParameters = new HashMap<String, Integer>();
-	private Map<String, String> m_stringParameters = new HashMap<String, String>();
+	private ParameterStore m_parameters = new ParameterStore();
+	private ParsedInputCache m_cache = null;
 	
 	public void readGeometryData(String file2Read) throws NumberFormatException, IOException
 	{
-        FileReader file;
 		try 
 		{
-			file = new FileReader(file2Read);
-			BufferedReader reader = new BufferedReader(file);
-			
-			String line;
-			while((line=reader.readLine()) != null)
+			if (m_cache != null)
 			{
-				if(line.startsWith("#"))
-				{
-					continue;
-				}
-				else if(line.trim().length() == 0)
-				{
-					continue;
-				}
-				else
-				{
-					line = line.replaceAll("\\t", "");
-					String[] lineParameters = line.split(":");
-					
-					if(lineParameters[1].equals("float"))
-					{
-						m_doubleParameters.put(lineParameters[0], Double.parseDouble(lineParameters[2]));
-					}
-					else if(lineParameters[1].equals("integer"))
-					{
-						m_intParameters.put(lineParameters[0], Integer.parseInt(lineParameters[2]));
-					}
-					else if(lineParameters[1].equals("string"))
-					{
-						m_stringParameters.put(lineParameters[0], lineParameters[2]);
-					}
-				}
+				m_parameters.putAll(m_cache.getParameters(file2Read));
+			}
+			else
+			{
+				// The parser maps the file and hands each name:type:value line straight to the store
+				ParameterFileParser.parse(file2Read, m_parameters);
 			}
-			reader.close();
-			
 		} 
 		catch (FileNotFoundException e) 
 		{
@@ -64,22 +32,42 @@ public class NewDataReader
 		}
 	}// end method readGeometryData
 	
+	/** This method makes readGeometryData go through a parsed input cache, which can be shared between readers
+	 * 
+	 * @param cache the cache to use, or null to parse the text on every read
+	 */
+	public void setCache(ParsedInputCache cache)
+	{
+		m_cache = cache;
+	}
+	
+	/** This method returns the store behind the getters, for resolving handles once
+	 * and reading values in a loop without a lookup per read
+	 *
+	 * @return the parameter store filled by readGeometryData
+	 */
+	public ParameterStore getParameterStore()
+	{
+		return m_parameters;
+	}
+	
 	public double getDoubleData(String variableName)
 	{
-		double variable = m_doubleParameters.get(variableName);
-		return variable;
+		return m_parameters.getDouble(m_parameters.getDoubleHandle(variableName));
 	}
 	
 	public int getIntData(String variableName)
 	{
-		int variable = m_intParameters.get(variableName);
-		return variable;
+		return m_parameters.getInt(m_parameters.getIntHandle(variableName));
 	}
 	
 	public String getStringData(String variableName)
 	{
-		String variable = m_stringParameters.get(variableName);
-		return variable;
+		if (!m_parameters.hasString(variableName))
+		{
+			return null;
+		}
+		return m_parameters.getString(m_parameters.getStringHandle(variableName));
 	}
 }
 
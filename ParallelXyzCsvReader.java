@@ -0,0 +1,427 @@
+package starClasses;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class reads table exports into double[] columns on a fork/join pool. Each file is split
+ * into byte ranges that end on line breaks and every range is memory mapped on its own. The ranges
+ * are read twice in parallel, once to count their rows, which fixes where each range writes in
+ * the columns, and once to parse the rows straight into their final place, so no range results
+ * have to be copied together afterwards.
+ *
+ * Many files, e.g. one per time step, are read with readAll, which reads the files in parallel
+ * with each other as well as in parallel inside each file.
+ *
+ * @author cj8q5
+ *
+ */
+public class ParallelXyzCsvReader
+{
+	// Default number of bytes in each range of a file
+	public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+	// Bytes read at a time while looking for a line break
+	private static final int SCAN_SIZE = 4096;
+
+	private ForkJoinPool m_pool;
+	private int m_chunkSize;
+
+	// Uses one thread per available processor
+	public ParallelXyzCsvReader()
+	{
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param threadCount the number of threads parsing at once
+	 * @param chunkSize the number of bytes in each range of a file
+	 */
+	public ParallelXyzCsvReader(int threadCount, int chunkSize)
+	{
+		m_pool = new ForkJoinPool(threadCount);
+		m_chunkSize = chunkSize;
+	}
+
+	/** This method reads one table export
+	 *
+	 * @param fileToRead path of the comma separated file
+	 * @return the columns with the names of the header
+	 * @throws InputFileException if a row is malformed
+	 */
+	public XyzTableColumns read(String fileToRead) throws IOException, InputFileException
+	{
+		try
+		{
+			return m_pool.invoke(new FileTask(fileToRead));
+		}
+		catch (WrappedException e)
+		{
+			throw rethrow(e);
+		}
+	}
+
+	/** This method reads many table exports in parallel
+	 *
+	 * @param filesToRead paths of the comma separated files
+	 * @return the columns of each file, in the order of the paths
+	 */
+	public XyzTableColumns[] readAll(final String[] filesToRead) throws IOException, InputFileException
+	{
+		try
+		{
+			return m_pool.invoke(new RecursiveTask<XyzTableColumns[]>()
+			{
+				private static final long serialVersionUID = 1L;
+
+				protected XyzTableColumns[] compute()
+				{
+					List<FileTask> tasks = new ArrayList<FileTask>();
+					for (String file : filesToRead)
+					{
+						tasks.add(new FileTask(file));
+					}
+					invokeAll(tasks);
+					XyzTableColumns[] tables = new XyzTableColumns[tasks.size()];
+					for (int i = 0; i < tables.length; i++)
+					{
+						tables[i] = tasks.get(i).join();
+					}
+					return tables;
+				}
+			});
+		}
+		catch (WrappedException e)
+		{
+			throw rethrow(e);
+		}
+	}// end method readAll
+
+	/** This method reads many table exports with the same columns and puts their rows one after the other
+	 *
+	 * @param filesToRead paths of the comma separated files
+	 * @return one table holding the rows of every file in the order of the paths
+	 */
+	public XyzTableColumns merge(String[] filesToRead) throws IOException, InputFileException
+	{
+		final XyzTableColumns[] tables = readAll(filesToRead);
+		if (tables.length == 0)
+		{
+			return new XyzTableColumns(new String[0], new double[0][]);
+		}
+		final String[] names = tables[0].getNames();
+		final long[] offsets = new long[tables.length + 1];
+		for (int i = 0; i < tables.length; i++)
+		{
+			if (!Arrays.equals(names, tables[i].getNames()))
+			{
+				throw new InputFileException(filesToRead[i], 1, 0, "The columns differ from those of " + filesToRead[0], null);
+			}
+			offsets[i + 1] = offsets[i] + tables[i].getRowCount();
+		}
+		if (offsets[tables.length] > Integer.MAX_VALUE)
+		{
+			throw new IOException("The merged table has more than " + Integer.MAX_VALUE + " rows");
+		}
+		final double[][] columns = new double[names.length][(int) offsets[tables.length]];
+		m_pool.invoke(new RangeAction(0, tables.length)
+		{
+			private static final long serialVersionUID = 1L;
+
+			void process(int i)
+			{
+				for (int column = 0; column < names.length; column++)
+				{
+					System.arraycopy(tables[i].getColumn(column), 0, columns[column], (int) offsets[i], tables[i].getRowCount());
+				}
+			}
+		});
+		return new XyzTableColumns(names, columns);
+	}// end method merge
+
+	// Stops the threads of the pool once the reads in progress are done
+	public void close()
+	{
+		m_pool.shutdown();
+	}
+
+	/**
+	 * This class reads one file, forking one action per range of the file for each of the two passes
+	 */
+	private class FileTask extends RecursiveTask<XyzTableColumns>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private String m_fileName;
+		private String[] m_names;
+		private List<ByteBuffer> m_chunks = new ArrayList<ByteBuffer>();
+		private int[] m_rowCounts;
+		private int[] m_lineCounts;
+
+		FileTask(String fileName)
+		{
+			m_fileName = fileName;
+		}
+
+		protected XyzTableColumns compute()
+		{
+			try
+			{
+				mapChunks();
+			}
+			catch (IOException e)
+			{
+				throw new WrappedException(e);
+			}
+			catch (InputFileException e)
+			{
+				throw new WrappedException(e);
+			}
+
+			// First pass, the rows of each range
+			m_rowCounts = new int[m_chunks.size()];
+			m_lineCounts = new int[m_chunks.size()];
+			invokeAll(new RangeAction(0, m_chunks.size())
+			{
+				private static final long serialVersionUID = 1L;
+
+				void process(int chunk)
+				{
+					countRows(chunk);
+				}
+			});
+
+			final int[] firstRows = new int[m_chunks.size()];
+			final int[] firstLines = new int[m_chunks.size()];
+			long rowCount = 0;
+			int lineCount = 1;
+			for (int i = 0; i < m_chunks.size(); i++)
+			{
+				firstRows[i] = (int) rowCount;
+				firstLines[i] = lineCount + 1;
+				rowCount += m_rowCounts[i];
+				lineCount += m_lineCounts[i];
+			}
+			if (rowCount > Integer.MAX_VALUE)
+			{
+				throw new WrappedException(new IOException(m_fileName + " has more than " + Integer.MAX_VALUE + " rows"));
+			}
+
+			// Second pass, each range parses into its own part of the columns
+			final double[][] columns = new double[m_names.length][(int) rowCount];
+			invokeAll(new RangeAction(0, m_chunks.size())
+			{
+				private static final long serialVersionUID = 1L;
+
+				void process(int chunk)
+				{
+					try
+					{
+						parseRows(chunk, columns, firstRows[chunk], firstLines[chunk]);
+					}
+					catch (InputFileException e)
+					{
+						throw new WrappedException(e);
+					}
+				}
+			});
+			return new XyzTableColumns(m_names, columns);
+		}// end method compute
+
+		// Reads the header and maps the rest of the file in ranges that end on line breaks
+		private void mapChunks() throws IOException, InputFileException
+		{
+			RandomAccessFile file = new RandomAccessFile(m_fileName, "r");
+			try
+			{
+				FileChannel channel = file.getChannel();
+				long size = channel.size();
+				long headerEnd = findLineEnd(channel, 0, size);
+				if (headerEnd == 0 && size == 0)
+				{
+					throw new InputFileException(m_fileName, 1, 0, "The file is empty", null);
+				}
+				ByteBuffer header = ByteBuffer.allocate((int) headerEnd);
+				XyzTimeSeriesReader.readFully(channel, header, 0, m_fileName);
+				m_names = XyzCsvReader.splitHeader(new String(header.array(), 0, header.limit(), "UTF-8"));
+
+				long start = Math.min(headerEnd + 1, size);
+				while (start < size)
+				{
+					long end = (size - start <= m_chunkSize) ? size : findLineEnd(channel, start + m_chunkSize, size);
+					MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+					m_chunks.add(chunk);
+					start = Math.min(end + 1, size);
+				}
+			}
+			finally
+			{
+				file.close();
+			}
+		}// end method mapChunks
+
+		private void countRows(int chunk)
+		{
+			ByteBuffer buffer = m_chunks.get(chunk);
+			int rows = 0;
+			int lines = 0;
+			int lineStart = 0;
+			int limit = buffer.limit();
+			for (int i = 0; i <= limit; i++)
+			{
+				if (i == limit || buffer.get(i) == '\n')
+				{
+					if (!XyzCsvReader.isBlank(buffer, lineStart, i))
+					{
+						rows++;
+					}
+					if (i < limit || lineStart < limit)
+					{
+						lines++;
+					}
+					lineStart = i + 1;
+				}
+			}
+			m_rowCounts[chunk] = rows;
+			m_lineCounts[chunk] = lines;
+		}
+
+		private void parseRows(int chunk, double[][] columns, int firstRow, int firstLine) throws InputFileException
+		{
+			ByteBuffer buffer = m_chunks.get(chunk);
+			double[] row = new double[m_names.length];
+			int rowIndex = firstRow;
+			int lineNumber = firstLine;
+			int lineStart = 0;
+			int limit = buffer.limit();
+			for (int i = 0; i <= limit; i++)
+			{
+				if (i == limit || buffer.get(i) == '\n')
+				{
+					if (!XyzCsvReader.isBlank(buffer, lineStart, i))
+					{
+						XyzCsvReader.parseRow(buffer, lineStart, i, row, m_names.length, m_fileName, lineNumber);
+						for (int column = 0; column < row.length; column++)
+						{
+							columns[column][rowIndex] = row[column];
+						}
+						rowIndex++;
+					}
+					lineNumber++;
+					lineStart = i + 1;
+				}
+			}
+		}// end method parseRows
+
+	}// end class FileTask
+
+	/**
+	 * This class processes the indices of a range, splitting it in half until one index is left
+	 */
+	private abstract static class RangeAction extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private int m_start;
+		private int m_end;
+
+		RangeAction(int start, int end)
+		{
+			m_start = start;
+			m_end = end;
+		}
+
+		abstract void process(int index);
+
+		protected void compute()
+		{
+			if (m_end - m_start <= 1)
+			{
+				if (m_end > m_start)
+				{
+					process(m_start);
+				}
+				return;
+			}
+			final int middle = (m_start + m_end) >>> 1;
+			final RangeAction parent = this;
+			invokeAll(new RangeAction(m_start, middle)
+			{
+				private static final long serialVersionUID = 1L;
+
+				void process(int index)
+				{
+					parent.process(index);
+				}
+			}, new RangeAction(middle, m_end)
+			{
+				private static final long serialVersionUID = 1L;
+
+				void process(int index)
+				{
+					parent.process(index);
+				}
+			});
+		}
+	}// end class RangeAction
+
+	/**
+	 * This class carries a checked exception out of a fork/join task
+	 */
+	private static class WrappedException extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+
+		WrappedException(Exception cause)
+		{
+			super(cause);
+		}
+	}
+
+	// Returns the checked exception a task wrapped, for the caller to throw
+	private static IOException rethrow(WrappedException e) throws InputFileException
+	{
+		if (e.getCause() instanceof InputFileException)
+		{
+			throw (InputFileException) e.getCause();
+		}
+		return (IOException) e.getCause();
+	}
+
+	/** This method finds the first line break at or after a position
+	 *
+	 * @return the position of the line break, or the size of the file if there is none
+	 */
+	private static long findLineEnd(FileChannel channel, long position, long size) throws IOException
+	{
+		ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+		while (position < size)
+		{
+			scan.clear();
+			int read = channel.read(scan, position);
+			if (read < 0)
+			{
+				break;
+			}
+			for (int i = 0; i < read; i++)
+			{
+				if (scan.get(i) == '\n')
+				{
+					return position + i;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+}// end class ParallelXyzCsvReader
@@ -0,0 +1,199 @@
+package starClasses;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class reads name:type:value parameter files by reading the whole file into a buffer and
+ * tokenizing the bytes directly. Lines starting with # and blank lines are skipped and
+ * tabs are ignored, the same as the original line based reader in NewDataReader.
+ *
+ * Each thread keeps its buffer for the next file, growing it when a file does not fit. Unlike a
+ * mapping, which stays open until the garbage collector gets to it, nothing holds on to the file
+ * once parse returns, so a watched file can be replaced or deleted straight away.
+ *
+ * @author cj8q5
+ *
+ */
+public class ParameterFileParser
+{
+	private static final byte[] FLOAT_TYPE = {'f', 'l', 'o', 'a', 't'};
+	private static final byte[] INTEGER_TYPE = {'i', 'n', 't', 'e', 'g', 'e', 'r'};
+	private static final byte[] STRING_TYPE = {'s', 't', 'r', 'i', 'n', 'g'};
+	private static final int INITIAL_BUFFER_SIZE = 8192;
+
+	private static final ThreadLocal<ByteBuffer> s_buffers = new ThreadLocal<ByteBuffer>()
+	{
+		@Override
+		protected ByteBuffer initialValue()
+		{
+			return ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+		}
+	};
+
+	private ParameterFileParser()
+	{
+	}
+
+	/** This method parses a parameter file and hands every parameter to the sink
+	 *
+	 * @param fileToRead the path of the parameter file
+	 * @param sink receives each parameter in the order it appears in the file
+	 * @throws IOException if the file cannot be read or a line has no type field
+	 * @throws NumberFormatException if a float or integer value cannot be parsed
+	 */
+	public static void parse(String fileToRead, ParameterSink sink) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(fileToRead, "r");
+		try
+		{
+			FileChannel channel = file.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+			{
+				throw new IOException(fileToRead + " is too large for a parameter file");
+			}
+			ByteBuffer buffer = s_buffers.get();
+			if (buffer.capacity() < size)
+			{
+				buffer = ByteBuffer.allocate((int) size);
+				s_buffers.set(buffer);
+			}
+			buffer.clear();
+			buffer.limit((int) size);
+			XyzTimeSeriesReader.readFully(channel, buffer, 0, fileToRead);
+			parse(buffer, fileToRead, sink);
+		}
+		finally
+		{
+			file.close();
+		}
+	}// end method parse
+
+	private static void parse(ByteBuffer buffer, String fileName, ParameterSink sink) throws IOException
+	{
+		int limit = buffer.limit();
+		byte[] scratch = new byte[128];
+		int lineNumber = 0;
+		int lineStart = 0;
+
+		while (lineStart < limit)
+		{
+			lineNumber++;
+
+			// Finding the end of the line, accepting \n, \r\n and \r terminators
+			int lineEnd = lineStart;
+			while (lineEnd < limit && buffer.get(lineEnd) != '\n' && buffer.get(lineEnd) != '\r')
+			{
+				lineEnd++;
+			}
+			int nextLine = lineEnd + 1;
+			if (lineEnd < limit && buffer.get(lineEnd) == '\r' && nextLine < limit && buffer.get(nextLine) == '\n')
+			{
+				nextLine++;
+			}
+
+			if (!isCommentOrBlank(buffer, lineStart, lineEnd))
+			{
+				int nameEnd = indexOf(buffer, lineStart, lineEnd, (byte) ':');
+				int typeEnd = indexOf(buffer, nameEnd + 1, lineEnd, (byte) ':');
+				if (nameEnd == lineEnd || typeEnd == lineEnd)
+				{
+					throw new IOException(fileName + ":" + lineNumber + ": expected name:type:value");
+				}
+				int valueEnd = indexOf(buffer, typeEnd + 1, lineEnd, (byte) ':');
+
+				if (scratch.length < lineEnd - lineStart)
+				{
+					scratch = new byte[lineEnd - lineStart];
+				}
+				String name = copyWithoutTabs(buffer, lineStart, nameEnd, scratch);
+
+				try
+				{
+					if (matchesIgnoringTabs(buffer, nameEnd + 1, typeEnd, FLOAT_TYPE))
+					{
+						sink.putDouble(name, ByteNumberParser.parseDouble(buffer, typeEnd + 1, valueEnd));
+					}
+					else if (matchesIgnoringTabs(buffer, nameEnd + 1, typeEnd, INTEGER_TYPE))
+					{
+						sink.putInt(name, ByteNumberParser.parseInt(buffer, typeEnd + 1, valueEnd));
+					}
+					else if (matchesIgnoringTabs(buffer, nameEnd + 1, typeEnd, STRING_TYPE))
+					{
+						sink.putString(name, copyWithoutTabs(buffer, typeEnd + 1, valueEnd, scratch));
+					}
+				}
+				catch (NumberFormatException e)
+				{
+					throw new NumberFormatException(fileName + ":" + lineNumber + ": " + e.getMessage());
+				}
+			}
+			lineStart = nextLine;
+		}
+	}// end method parse
+
+	private static boolean isCommentOrBlank(ByteBuffer buffer, int start, int end)
+	{
+		if (start < end && buffer.get(start) == '#')
+		{
+			return true;
+		}
+		for (int i = start; i < end; i++)
+		{
+			if (!ByteNumberParser.isWhitespace(buffer.get(i)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(ByteBuffer buffer, int start, int end, byte target)
+	{
+		for (int i = start; i < end; i++)
+		{
+			if (buffer.get(i) == target)
+			{
+				return i;
+			}
+		}
+		return end;
+	}
+
+	private static boolean matchesIgnoringTabs(ByteBuffer buffer, int start, int end, byte[] literal)
+	{
+		int j = 0;
+		for (int i = start; i < end; i++)
+		{
+			byte b = buffer.get(i);
+			if (b == '\t')
+			{
+				continue;
+			}
+			if (j == literal.length || b != literal[j])
+			{
+				return false;
+			}
+			j++;
+		}
+		return j == literal.length;
+	}
+
+	private static String copyWithoutTabs(ByteBuffer buffer, int start, int end, byte[] scratch)
+	{
+		int length = 0;
+		for (int i = start; i < end; i++)
+		{
+			byte b = buffer.get(i);
+			if (b != '\t')
+			{
+				scratch[length++] = b;
+			}
+		}
+		return new String(scratch, 0, length);
+	}
+
+}// end class ParameterFileParser
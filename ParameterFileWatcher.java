@@ -0,0 +1,275 @@
+package starClasses;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class keeps the parameters of a set of name:type:value parameter files up to date while a
+ * simulation runs. A background thread watches the directories of the files and re-parses only the
+ * files that change. The merged parameters are published as a frozen ParameterStore through a
+ * volatile field, so the solver loop reads the newest values with no locking and no parsing.
+ * Files later in the list override parameters of the same name in earlier files, the same as
+ * reading them one after the other with NewDataReader.
+ *
+ * A file that fails to parse keeps its previous values and the error is kept in getLastError.
+ * So does a file that parses but is empty or lacks a parameter it had before, which is what an
+ * editor truncating the file and then writing it out leaves for a moment. The complete file is
+ * picked up by the change event of the final write. Removing a parameter from a watched file
+ * therefore takes effect only when the watcher is created again.
+ *
+ * @author cj8q5
+ *
+ */
+public class ParameterFileWatcher
+{
+	// Editors often write a file in several steps, changes are collected for this long before reloading
+	private static final long SETTLE_MILLISECONDS = 200;
+
+	private Path[] m_files;
+	private ParameterStore[] m_fileParameters;
+	private WatchService m_watchService;
+	private Thread m_thread;
+
+	private volatile ParameterStore m_snapshot;
+	private volatile long m_version = 0;
+	private volatile Exception m_lastError = null;
+	private volatile boolean m_running = true;
+
+	/** This constructor reads every file once and starts watching them
+	 *
+	 * @param files2Read paths of the parameter files
+	 * @throws IOException if a file cannot be read or the directories cannot be watched
+	 */
+	public ParameterFileWatcher(String[] files2Read) throws IOException
+	{
+		m_files = new Path[files2Read.length];
+		m_fileParameters = new ParameterStore[files2Read.length];
+		m_watchService = FileSystems.getDefault().newWatchService();
+
+		// A file that cannot be read or parsed must not leave the watch service open
+		boolean watching = false;
+		try
+		{
+			Set<Path> directories = new HashSet<Path>();
+			for (int i = 0; i < files2Read.length; i++)
+			{
+				m_files[i] = Paths.get(files2Read[i]).toAbsolutePath().normalize();
+				m_fileParameters[i] = parse(m_files[i]);
+
+				Path directory = m_files[i].getParent();
+				if (directories.add(directory))
+				{
+					directory.register(m_watchService, StandardWatchEventKinds.ENTRY_CREATE,
+							StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.OVERFLOW);
+				}
+			}
+			publish();
+			watching = true;
+		}
+		finally
+		{
+			if (!watching)
+			{
+				m_watchService.close();
+			}
+		}
+
+		m_thread = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				watch();
+			}
+		}, "ParameterFileWatcher");
+		m_thread.setDaemon(true);
+		m_thread.start();
+	}
+
+	/** This method returns the newest parameters, the store is frozen and never changes after it is published.
+	 * Handles resolved against one snapshot are only guaranteed for that snapshot, so resolve them again
+	 * when getVersion changes.
+	 *
+	 * @return the current snapshot of the merged parameters
+	 */
+	public ParameterStore getSnapshot()
+	{
+		return m_snapshot;
+	}
+
+	// Returns a number that goes up by one every time a new snapshot is published
+	public long getVersion()
+	{
+		return m_version;
+	}
+
+	// Returns the last error met while reloading, or null if every reload succeeded
+	public Exception getLastError()
+	{
+		return m_lastError;
+	}
+
+	/** This method stops the background thread and releases the watch service
+	 */
+	public void close() throws IOException
+	{
+		m_running = false;
+		m_watchService.close();
+		try
+		{
+			m_thread.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void watch()
+	{
+		boolean[] changed = new boolean[m_files.length];
+		while (m_running)
+		{
+			try
+			{
+				WatchKey key = m_watchService.take();
+
+				// Collecting every event that arrives while the file settles
+				while (key != null)
+				{
+					collectChanges(key, changed);
+					key.reset();
+					key = m_watchService.poll(SETTLE_MILLISECONDS, TimeUnit.MILLISECONDS);
+				}
+				reload(changed);
+			}
+			catch (InterruptedException e)
+			{
+				return;
+			}
+			catch (RuntimeException e)
+			{
+				// ClosedWatchServiceException when close is called
+				if (!m_running)
+				{
+					return;
+				}
+				m_lastError = e;
+			}
+		}
+	}// end method watch
+
+	private void collectChanges(WatchKey key, boolean[] changed)
+	{
+		Path directory = (Path) key.watchable();
+		for (WatchEvent<?> event : key.pollEvents())
+		{
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+			{
+				// Events were lost, every file in the directory has to be read again
+				for (int i = 0; i < m_files.length; i++)
+				{
+					changed[i] |= m_files[i].getParent().equals(directory);
+				}
+				continue;
+			}
+			Path path = directory.resolve((Path) event.context()).normalize();
+			for (int i = 0; i < m_files.length; i++)
+			{
+				changed[i] |= m_files[i].equals(path);
+			}
+		}
+	}
+
+	private void reload(boolean[] changed)
+	{
+		boolean anyReloaded = false;
+		for (int i = 0; i < m_files.length; i++)
+		{
+			if (!changed[i])
+			{
+				continue;
+			}
+			changed[i] = false;
+			try
+			{
+				ParameterStore parameters = parse(m_files[i]);
+				String missing = findMissing(m_fileParameters[i], parameters);
+				if (missing != null)
+				{
+					throw new IOException(m_files[i] + " no longer has the parameter " + missing
+							+ ", it may be written part way, the previous values are kept");
+				}
+				m_fileParameters[i] = parameters;
+				anyReloaded = true;
+			}
+			catch (IOException e)
+			{
+				m_lastError = e;
+			}
+			catch (NumberFormatException e)
+			{
+				m_lastError = e;
+			}
+		}
+		if (anyReloaded)
+		{
+			publish();
+		}
+	}// end method reload
+
+	private void publish()
+	{
+		ParameterStore snapshot = new ParameterStore();
+		for (int i = 0; i < m_fileParameters.length; i++)
+		{
+			snapshot.putAll(m_fileParameters[i]);
+		}
+		snapshot.freeze();
+		m_snapshot = snapshot;
+		m_version++;
+	}
+
+	// Returns the name of a parameter of the previous parse that the new one lacks, or null if none is missing
+	private static String findMissing(ParameterStore previous, ParameterStore parameters)
+	{
+		for (int i = 0; i < previous.getDoubleCount(); i++)
+		{
+			if (!parameters.hasDouble(previous.getDoubleName(i)))
+			{
+				return previous.getDoubleName(i);
+			}
+		}
+		for (int i = 0; i < previous.getIntCount(); i++)
+		{
+			if (!parameters.hasInt(previous.getIntName(i)))
+			{
+				return previous.getIntName(i);
+			}
+		}
+		for (int i = 0; i < previous.getStringCount(); i++)
+		{
+			if (!parameters.hasString(previous.getStringName(i)))
+			{
+				return previous.getStringName(i);
+			}
+		}
+		return null;
+	}
+
+	private static ParameterStore parse(Path file) throws IOException
+	{
+		ParameterStore parameters = new ParameterStore();
+		ParameterFileParser.parse(file.toString(), parameters);
+		return parameters;
+	}
+
+}// end class ParameterFileWatcher
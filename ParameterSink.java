@@ -0,0 +1,17 @@
+package starClasses;
+
+/**
+ * This interface receives the parameters found in a name:type:value parameter file
+ * 
+ * @author cj8q5
+ *
+ */
+public interface ParameterSink 
+{
+	public void putDouble(String name, double value);
+	
+	public void putInt(String name, int value);
+	
+	public void putString(String name, String value);
+	
+}// end interface ParameterSink
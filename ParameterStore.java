@@ -0,0 +1,240 @@
+package starClasses;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class holds the parameters read from name:type:value parameter files. Each name is
+ * interned once into an integer slot and the values are kept in primitive arrays, so a macro
+ * can resolve a handle up front and read the value in a loop without hashing or boxing.
+ * Handles stay valid for the life of the store, re-reading a file overwrites values in place.
+ * A frozen store rejects every change, so it can be shared between threads as a snapshot.
+ *
+ * @author cj8q5
+ *
+ */
+public class ParameterStore implements ParameterSink
+{
+	private static final int INITIAL_CAPACITY = 16;
+
+	private Map<String, Integer> m_doubleSlots = new HashMap<String, Integer>();
+	private String[] m_doubleNames = new String[INITIAL_CAPACITY];
+	private double[] m_doubleValues = new double[INITIAL_CAPACITY];
+	private int m_doubleCount = 0;
+
+	private Map<String, Integer> m_intSlots = new HashMap<String, Integer>();
+	private String[] m_intNames = new String[INITIAL_CAPACITY];
+	private int[] m_intValues = new int[INITIAL_CAPACITY];
+	private int m_intCount = 0;
+
+	private Map<String, Integer> m_stringSlots = new HashMap<String, Integer>();
+	private String[] m_stringNames = new String[INITIAL_CAPACITY];
+	private String[] m_stringValues = new String[INITIAL_CAPACITY];
+	private int m_stringCount = 0;
+
+	private boolean m_frozen = false;
+
+	public void putDouble(String name, double value)
+	{
+		checkNotFrozen();
+		Integer slot = m_doubleSlots.get(name);
+		if (slot == null)
+		{
+			if (m_doubleCount == m_doubleValues.length)
+			{
+				m_doubleNames = Arrays.copyOf(m_doubleNames, m_doubleCount*2);
+				m_doubleValues = Arrays.copyOf(m_doubleValues, m_doubleCount*2);
+			}
+			slot = m_doubleCount++;
+			m_doubleSlots.put(name, slot);
+			m_doubleNames[slot] = name;
+		}
+		m_doubleValues[slot] = value;
+	}
+
+	public void putInt(String name, int value)
+	{
+		checkNotFrozen();
+		Integer slot = m_intSlots.get(name);
+		if (slot == null)
+		{
+			if (m_intCount == m_intValues.length)
+			{
+				m_intNames = Arrays.copyOf(m_intNames, m_intCount*2);
+				m_intValues = Arrays.copyOf(m_intValues, m_intCount*2);
+			}
+			slot = m_intCount++;
+			m_intSlots.put(name, slot);
+			m_intNames[slot] = name;
+		}
+		m_intValues[slot] = value;
+	}
+
+	public void putString(String name, String value)
+	{
+		checkNotFrozen();
+		Integer slot = m_stringSlots.get(name);
+		if (slot == null)
+		{
+			if (m_stringCount == m_stringValues.length)
+			{
+				m_stringNames = Arrays.copyOf(m_stringNames, m_stringCount*2);
+				m_stringValues = Arrays.copyOf(m_stringValues, m_stringCount*2);
+			}
+			slot = m_stringCount++;
+			m_stringSlots.put(name, slot);
+			m_stringNames[slot] = name;
+		}
+		m_stringValues[slot] = value;
+	}
+
+	/** This method copies every parameter of another store into this one
+	 *
+	 * @param other the store whose parameters are added, existing names are overwritten
+	 */
+	public void putAll(ParameterStore other)
+	{
+		for (int i = 0; i < other.m_doubleCount; i++)
+		{
+			putDouble(other.m_doubleNames[i], other.m_doubleValues[i]);
+		}
+		for (int i = 0; i < other.m_intCount; i++)
+		{
+			putInt(other.m_intNames[i], other.m_intValues[i]);
+		}
+		for (int i = 0; i < other.m_stringCount; i++)
+		{
+			putString(other.m_stringNames[i], other.m_stringValues[i]);
+		}
+	}// end method putAll
+
+	/** This method makes the store read only, after which it can be read from any thread without locking
+	 */
+	public void freeze()
+	{
+		m_frozen = true;
+	}
+
+	public boolean isFrozen()
+	{
+		return m_frozen;
+	}
+
+	private void checkNotFrozen()
+	{
+		if (m_frozen)
+		{
+			throw new IllegalStateException("The parameter store is frozen");
+		}
+	}
+
+	/** This method resolves the name of a float parameter into a handle for getDouble
+	 *
+	 * @param name the parameter name as written in the parameter file
+	 * @return the handle of the parameter
+	 * @throws IllegalArgumentException if no float parameter has that name
+	 */
+	public int getDoubleHandle(String name)
+	{
+		Integer slot = m_doubleSlots.get(name);
+		if (slot == null)
+		{
+			throw new IllegalArgumentException("No float parameter named " + name);
+		}
+		return slot;
+	}
+
+	/** This method resolves the name of an integer parameter into a handle for getInt
+	 *
+	 * @param name the parameter name as written in the parameter file
+	 * @return the handle of the parameter
+	 * @throws IllegalArgumentException if no integer parameter has that name
+	 */
+	public int getIntHandle(String name)
+	{
+		Integer slot = m_intSlots.get(name);
+		if (slot == null)
+		{
+			throw new IllegalArgumentException("No integer parameter named " + name);
+		}
+		return slot;
+	}
+
+	/** This method resolves the name of a string parameter into a handle for getString
+	 *
+	 * @param name the parameter name as written in the parameter file
+	 * @return the handle of the parameter
+	 * @throws IllegalArgumentException if no string parameter has that name
+	 */
+	public int getStringHandle(String name)
+	{
+		Integer slot = m_stringSlots.get(name);
+		if (slot == null)
+		{
+			throw new IllegalArgumentException("No string parameter named " + name);
+		}
+		return slot;
+	}
+
+	public double getDouble(int handle)
+	{
+		return m_doubleValues[handle];
+	}
+
+	public int getInt(int handle)
+	{
+		return m_intValues[handle];
+	}
+
+	public String getString(int handle)
+	{
+		return m_stringValues[handle];
+	}
+
+	public boolean hasDouble(String name)
+	{
+		return m_doubleSlots.containsKey(name);
+	}
+
+	public boolean hasInt(String name)
+	{
+		return m_intSlots.containsKey(name);
+	}
+
+	public boolean hasString(String name)
+	{
+		return m_stringSlots.containsKey(name);
+	}
+
+	public int getDoubleCount()
+	{
+		return m_doubleCount;
+	}
+
+	public int getIntCount()
+	{
+		return m_intCount;
+	}
+
+	public int getStringCount()
+	{
+		return m_stringCount;
+	}
+
+	public String getDoubleName(int handle)
+	{
+		return m_doubleNames[handle];
+	}
+
+	public String getIntName(int handle)
+	{
+		return m_intNames[handle];
+	}
+
+	public String getStringName(int handle)
+	{
+		return m_stringNames[handle];
+	}
+
+}// end class ParameterStore
@@ -0,0 +1,423 @@
+package starClasses;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class caches parsed input files so a sweep does not parse the same text over and over.
+ * The memory tier holds the most recently used files and is checked against the modification
+ * time and size of the file. A time stamp can be as coarse as a second or two, so an entry whose
+ * file was modified within that window of when it was cached could hide a rewrite of the same
+ * length, and its hash is checked again until the window has passed. Behind it every parsed file
+ * gets a small binary sidecar, named after the input file with a .parsed extension, that is only
+ * used while the SHA-1 hash of the input file still matches the hash stored in the sidecar.
+ *
+ * Every call returns a new object, so results stored in a MeshElementData never leak between callers.
+ *
+ * @author cj8q5
+ *
+ */
+public class ParsedInputCache
+{
+	private static final int MAGIC = 0x53434331;
+	private static final int VERSION = 1;
+	private static final String SIDECAR_EXTENSION = ".parsed";
+
+	// The coarsest modification time resolution expected, two seconds on FAT and one on many others
+	private static final long TIMESTAMP_RESOLUTION_MILLIS = 2000;
+
+	private static final int GEOMETRY = 1;
+	private static final int MESH_ELEMENT = 2;
+	private static final int MESH_SPACING = 3;
+	private static final int PARAMETERS = 4;
+
+	private Map<String, CacheEntry> m_entries;
+	private boolean m_sidecarsEnabled = true;
+	private int m_hits = 0;
+	private int m_sidecarHits = 0;
+	private int m_misses = 0;
+
+	/**
+	 * @param capacity the number of parsed files kept in memory, the least recently used is evicted first
+	 */
+	public ParsedInputCache(final int capacity)
+	{
+		m_entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest)
+			{
+				return size() > capacity;
+			}
+		};
+	}
+
+	/** This method turns the binary sidecar files on or off, with them off only the memory tier is used
+	 *
+	 * @param sidecarsEnabled true to read and write .parsed sidecar files
+	 */
+	public synchronized void setSidecarsEnabled(boolean sidecarsEnabled)
+	{
+		m_sidecarsEnabled = sidecarsEnabled;
+	}
+
+	public synchronized GeoData getGeoData(String fileToRead) throws InputFileException
+	{
+		double[] v = (double[]) lookup(fileToRead, GEOMETRY);
+		return new GeoData(v[0], v[1], v[2], v[3], v[4], v[5], v[6]);
+	}
+
+	public synchronized MeshElementData getMeshElementData(String fileToRead) throws InputFileException
+	{
+		int[] v = (int[]) lookup(fileToRead, MESH_ELEMENT);
+		return new MeshElementData(v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7], v[8], v[9], v[10], v[11], v[12]);
+	}
+
+	public synchronized MeshSpacingData getMeshSpacingData(String fileToRead) throws InputFileException
+	{
+		double[] v = (double[]) lookup(fileToRead, MESH_SPACING);
+		return new MeshSpacingData(v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7]);
+	}
+
+	/** This method returns the parameters of a name:type:value parameter file
+	 *
+	 * @param fileToRead path of the parameter file
+	 * @return a new store holding the parameters of the file
+	 * @throws IOException if the file cannot be read or has a malformed line
+	 * @throws NumberFormatException if a float or integer value cannot be parsed
+	 */
+	public synchronized ParameterStore getParameters(String fileToRead) throws IOException
+	{
+		try
+		{
+			ParameterStore copy = new ParameterStore();
+			copy.putAll((ParameterStore) lookup(fileToRead, PARAMETERS));
+			return copy;
+		}
+		catch (InputFileException e)
+		{
+			if (e.getCause() instanceof IOException)
+			{
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof NumberFormatException)
+			{
+				throw (NumberFormatException) e.getCause();
+			}
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	public synchronized void clear()
+	{
+		m_entries.clear();
+	}
+
+	// Returns the number of requests answered from memory, from a sidecar and by parsing the text
+	public synchronized int[] getStatistics()
+	{
+		return new int[] {m_hits, m_sidecarHits, m_misses};
+	}
+
+	private Object lookup(String fileToRead, int kind) throws InputFileException
+	{
+		File file = new File(fileToRead);
+		if (!file.isFile())
+		{
+			FileNotFoundException missing = new FileNotFoundException(fileToRead);
+			throw new InputFileException(fileToRead, 0, 0, missing.toString(), missing);
+		}
+		String key = kind + ":" + file.getAbsolutePath();
+		long checkedAt = System.currentTimeMillis();
+		long lastModified = file.lastModified();
+		long length = file.length();
+
+		CacheEntry entry = m_entries.get(key);
+		if (entry != null && entry.m_lastModified == lastModified && entry.m_length == length && !entry.isRacy())
+		{
+			m_hits++;
+			return entry.m_value;
+		}
+
+		byte[] hash = hashFile(fileToRead);
+		if (entry != null && Arrays.equals(entry.m_hash, hash))
+		{
+			// Touched but unchanged, or too recent to trust the time stamp, keep the parsed value
+			m_hits++;
+			m_entries.put(key, new CacheEntry(lastModified, length, checkedAt, hash, entry.m_value));
+			return entry.m_value;
+		}
+
+		File sidecar = new File(fileToRead + SIDECAR_EXTENSION);
+		Object value = m_sidecarsEnabled ? readSidecar(sidecar, kind, hash) : null;
+		if (value != null)
+		{
+			m_sidecarHits++;
+		}
+		else
+		{
+			m_misses++;
+			value = parse(fileToRead, kind);
+
+			// A file rewritten while it was parsed must not be stored against the old hash, the time
+			// stamp and size cannot tell a rewrite of the same length within the same second
+			if (!Arrays.equals(hashFile(fileToRead), hash))
+			{
+				return value;
+			}
+			if (m_sidecarsEnabled)
+			{
+				writeSidecar(sidecar, kind, hash, value);
+			}
+		}
+		m_entries.put(key, new CacheEntry(lastModified, length, checkedAt, hash, value));
+		return value;
+	}// end method lookup
+
+	private static Object parse(String fileToRead, int kind) throws InputFileException
+	{
+		if (kind == GEOMETRY)
+		{
+			GeoData g = DataReader.parseGeometryData(fileToRead);
+			return new double[] {g.getPlateLength(), g.getPlateHeight(), g.getPlateWidth(),
+					g.getSmallChannelHeight(), g.getLargeChannelHeight(), g.getInletLength(), g.getOutletLength()};
+		}
+		if (kind == MESH_ELEMENT)
+		{
+			MeshElementData m = DataReader.parseMeshElementData(fileToRead);
+			return new int[] {m.getExtrudeCell(), m.getInletX(), m.getLargeInletY(), m.getSmallInletY(), m.getPlateInletY(),
+					m.getOutletX(), m.getLargeOutletY(), m.getSmallOutletY(), m.getPlateOutletY(),
+					m.getSmChannelX(), m.getSmChannelY(), m.getLgChannelX(), m.getLgChannelY()};
+		}
+		if (kind == MESH_SPACING)
+		{
+			MeshSpacingData m = DataReader.parseMeshSpacingData(fileToRead);
+			return new double[] {m.getInletSpacingX(), m.getInletSpacingY(), m.getOutletSpacingX(), m.getOutletSpacingY(),
+					m.getSmChannelSpacingX(), m.getSmChannelSpacingY(), m.getLgChannelSpacingX(), m.getLgChannelSpacingY()};
+		}
+		ParameterStore store = new ParameterStore();
+		try
+		{
+			ParameterFileParser.parse(fileToRead, store);
+		}
+		catch (IOException e)
+		{
+			throw new InputFileException(fileToRead, 0, 0, e.getMessage(), e);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new InputFileException(fileToRead, 0, 0, e.getMessage(), e);
+		}
+		return store;
+	}// end method parse
+
+	private static byte[] hashFile(String fileToRead) throws InputFileException
+	{
+		try
+		{
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			FileInputStream stream = new FileInputStream(fileToRead);
+			try
+			{
+				byte[] block = new byte[8192];
+				int read;
+				while ((read = stream.read(block)) > 0)
+				{
+					digest.update(block, 0, read);
+				}
+			}
+			finally
+			{
+				stream.close();
+			}
+			return digest.digest();
+		}
+		catch (IOException e)
+		{
+			throw new InputFileException(fileToRead, 0, 0, e.toString(), e);
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}// end method hashFile
+
+	/** This method reads a sidecar, returning null if it is missing, stale or unreadable
+	 */
+	private static Object readSidecar(File sidecar, int kind, byte[] hash)
+	{
+		if (!sidecar.isFile())
+		{
+			return null;
+		}
+		try
+		{
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(sidecar)));
+			try
+			{
+				if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != kind)
+				{
+					return null;
+				}
+				byte[] storedHash = new byte[in.readUnsignedByte()];
+				in.readFully(storedHash);
+				if (!Arrays.equals(storedHash, hash))
+				{
+					return null;
+				}
+
+				if (kind == MESH_ELEMENT)
+				{
+					int[] values = new int[MeshElementCaseTable.FIELD_COUNT];
+					for (int i = 0; i < values.length; i++)
+					{
+						values[i] = in.readInt();
+					}
+					return values;
+				}
+				if (kind == GEOMETRY || kind == MESH_SPACING)
+				{
+					double[] values = new double[kind == GEOMETRY ? GeoCaseTable.FIELD_COUNT : MeshSpacingCaseTable.FIELD_COUNT];
+					for (int i = 0; i < values.length; i++)
+					{
+						values[i] = in.readDouble();
+					}
+					return values;
+				}
+				ParameterStore store = new ParameterStore();
+				for (int i = in.readInt(); i > 0; i--)
+				{
+					store.putDouble(in.readUTF(), in.readDouble());
+				}
+				for (int i = in.readInt(); i > 0; i--)
+				{
+					store.putInt(in.readUTF(), in.readInt());
+				}
+				for (int i = in.readInt(); i > 0; i--)
+				{
+					store.putString(in.readUTF(), in.readUTF());
+				}
+				return store;
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (IOException e)
+		{
+			// A damaged sidecar is treated as missing and rewritten after parsing
+			return null;
+		}
+	}// end method readSidecar
+
+	/** This method writes a sidecar through a temporary file, failures only cost the next run a parse
+	 */
+	private static void writeSidecar(File sidecar, int kind, byte[] hash, Object value)
+	{
+		File temporary = new File(sidecar.getPath() + ".tmp");
+		try
+		{
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+			try
+			{
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(kind);
+				out.writeByte(hash.length);
+				out.write(hash);
+
+				if (value instanceof int[])
+				{
+					for (int v : (int[]) value)
+					{
+						out.writeInt(v);
+					}
+				}
+				else if (value instanceof double[])
+				{
+					for (double v : (double[]) value)
+					{
+						out.writeDouble(v);
+					}
+				}
+				else
+				{
+					ParameterStore store = (ParameterStore) value;
+					out.writeInt(store.getDoubleCount());
+					for (int i = 0; i < store.getDoubleCount(); i++)
+					{
+						out.writeUTF(store.getDoubleName(i));
+						out.writeDouble(store.getDouble(i));
+					}
+					out.writeInt(store.getIntCount());
+					for (int i = 0; i < store.getIntCount(); i++)
+					{
+						out.writeUTF(store.getIntName(i));
+						out.writeInt(store.getInt(i));
+					}
+					out.writeInt(store.getStringCount());
+					for (int i = 0; i < store.getStringCount(); i++)
+					{
+						out.writeUTF(store.getStringName(i));
+						out.writeUTF(store.getString(i));
+					}
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+			sidecar.delete();
+			if (!temporary.renameTo(sidecar))
+			{
+				temporary.delete();
+			}
+		}
+		catch (IOException e)
+		{
+			temporary.delete();
+		}
+	}// end method writeSidecar
+
+	private static class CacheEntry
+	{
+		private long m_lastModified;
+		private long m_length;
+		private long m_checkedAt;
+		private byte[] m_hash;
+		private Object m_value;
+
+		/**
+		 * @param checkedAt the clock time just before the time stamp and size were read and the file hashed
+		 */
+		private CacheEntry(long lastModified, long length, long checkedAt, byte[] hash, Object value)
+		{
+			m_lastModified = lastModified;
+			m_length = length;
+			m_checkedAt = checkedAt;
+			m_hash = hash;
+			m_value = value;
+		}
+
+		// True while the file was modified too close to the check for its time stamp to show a later rewrite
+		private boolean isRacy()
+		{
+			return m_lastModified + TIMESTAMP_RESOLUTION_MILLIS > m_checkedAt;
+		}
+	}
+
+}// end class ParsedInputCache
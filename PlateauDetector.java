@@ -0,0 +1,88 @@
+package starClasses;
+
+/**
+ * This class decides when a set of monitored values, such as the pressure reports of a case, have
+ * stopped changing. Each new sample is compared with the previous one and the relative change is
+ * folded into an exponential moving average, so every sample costs O(1) time and memory no matter
+ * how long the case runs. The values have plateaued once the latest change and the averaged change
+ * of every value stay below the tolerance for the required number of samples in a row.
+ *
+ * @author cj8q5
+ *
+ */
+public class PlateauDetector
+{
+	// Weight of the newest change in the moving average
+	private static final double SMOOTHING = 0.5;
+
+	// Values smaller than this are compared absolutely instead of relatively
+	private static final double SMALLEST_SCALE = 1e-12;
+
+	private double m_tolerance;
+	private int m_requiredQuietSamples;
+	private double[] m_previous;
+	private double[] m_averageChange;
+	private int m_sampleCount = 0;
+	private int m_quietSamples = 0;
+
+	/**
+	 * @param valueCount the number of values in each sample
+	 * @param tolerance the relative change below which a value counts as settled, e.g. 1e-3
+	 * @param requiredQuietSamples the number of samples in a row that must be settled
+	 */
+	public PlateauDetector(int valueCount, double tolerance, int requiredQuietSamples)
+	{
+		m_tolerance = tolerance;
+		m_requiredQuietSamples = requiredQuietSamples;
+		m_previous = new double[valueCount];
+		m_averageChange = new double[valueCount];
+	}
+
+	// Forgets every sample, for starting the next case
+	public void reset()
+	{
+		m_sampleCount = 0;
+		m_quietSamples = 0;
+	}
+
+	/** This method adds a sample and reports whether the values have plateaued
+	 *
+	 * @param values the current value of each monitored quantity
+	 * @return true once every value has been settled for the required number of samples
+	 */
+	public boolean addSample(double[] values)
+	{
+		boolean quiet = (m_sampleCount > 0);
+		for (int i = 0; i < m_previous.length; i++)
+		{
+			if (m_sampleCount > 0)
+			{
+				double scale = Math.max(Math.max(Math.abs(values[i]), Math.abs(m_previous[i])), SMALLEST_SCALE);
+				double change = Math.abs(values[i] - m_previous[i])/scale;
+				m_averageChange[i] = (m_sampleCount == 1) ? change : SMOOTHING*change + (1.0 - SMOOTHING)*m_averageChange[i];
+				quiet &= (change < m_tolerance && m_averageChange[i] < m_tolerance);
+			}
+			m_previous[i] = values[i];
+		}
+		m_sampleCount++;
+		m_quietSamples = quiet ? m_quietSamples + 1 : 0;
+		return isPlateaued();
+	}// end method addSample
+
+	public boolean isPlateaued()
+	{
+		return m_quietSamples >= m_requiredQuietSamples;
+	}
+
+	public int getSampleCount()
+	{
+		return m_sampleCount;
+	}
+
+	// Returns the averaged relative change of one value
+	public double getAverageChange(int valueIndex)
+	{
+		return m_averageChange[valueIndex];
+	}
+
+}// end class PlateauDetector
@@ -0,0 +1,79 @@
+package starClasses;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * This class stands in for SimRunner outside StarCCM+. It makes up pressures that only depend on
+ * the cell count and records every mesh it is asked to prepare, so a sweep or a farm can be tried
+ * on a plain Linux box and SweepEngineCheck can see how often and in which order meshes are built.
+ *
+ * A case run on a mesh prepared for a different case is a bug in the caller, runCase throws an
+ * IllegalStateException for it.
+ *
+ * @author cj8q5
+ *
+ */
+public class RecordingCaseRunner implements CaseRunner
+{
+	private List<String> m_preparedMeshes = new ArrayList<String>();
+	private List<Long> m_preparedCellCounts = new ArrayList<Long>();
+	private String m_currentMesh = null;
+	private int m_runCount = 0;
+
+	public void prepareMesh(MeshElementData mED, MeshSpacingData mSD)
+	{
+		m_currentMesh = getMeshKey(mED, mSD);
+		m_preparedMeshes.add(m_currentMesh);
+		m_preparedCellCounts.add(mED.getCellCount());
+	}
+
+	public void runCase(MeshElementData mED, MeshSpacingData mSD, int iterations)
+	{
+		if (m_currentMesh == null)
+		{
+			throw new IllegalStateException("A case was run before any mesh was prepared");
+		}
+		if (!m_currentMesh.equals(getMeshKey(mED, mSD)))
+		{
+			throw new IllegalStateException("A case with " + mED.getCellCount() + " cells was run on the mesh of another case");
+		}
+		double resolution = 1.0/Math.sqrt(Math.max(mED.getCellCount(), 1));
+		mED.setMaxPressures(1000.0 + 500.0*resolution, 900.0 + 400.0*resolution);
+		mED.setMinPressures(100.0 - 50.0*resolution, 90.0 - 40.0*resolution);
+		mED.setIterationsUsed(iterations);
+		m_runCount++;
+	}
+
+	// Returns the number of times a mesh was prepared
+	public int getPrepareCount()
+	{
+		return m_preparedMeshes.size();
+	}
+
+	// Returns the number of cases run
+	public int getRunCount()
+	{
+		return m_runCount;
+	}
+
+	// Returns the cell count of the mesh prepared at the given call, counting from 0
+	public long getPreparedCellCount(int prepareIndex)
+	{
+		return m_preparedCellCounts.get(prepareIndex);
+	}
+
+	// Returns true when some mesh was prepared more than once
+	public boolean hasRepeatedMesh()
+	{
+		return m_preparedMeshes.size() != new HashSet<String>(m_preparedMeshes).size();
+	}
+
+	private static String getMeshKey(MeshElementData mED, MeshSpacingData mSD)
+	{
+		return Arrays.toString(SweepEngine.getElementCounts(mED)) + Arrays.toString(SweepEngine.getSpacings(mSD));
+	}
+
+}// end class RecordingCaseRunner
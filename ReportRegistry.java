@@ -0,0 +1,138 @@
+package starClasses;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import star.base.report.Report;
+import star.common.Simulation;
+
+/**
+ * This class resolves a list of report names once into Report objects and reads all of them
+ * together each time a sample is taken. The samples are kept in a ring allocated up front, one row
+ * of values per sample, so tracking many reports through a case needs no name lookups and no
+ * allocation after construction. A report is addressed by the handle returned from getHandle,
+ * which is its position in the list of names.
+ *
+ * @author cj8q5
+ *
+ */
+public class ReportRegistry
+{
+	private Report[] m_reports;
+	private String[] m_names;
+	private Map<String, Integer> m_handles = new HashMap<String, Integer>();
+
+	// Ring of samples, the values of sample s start at (s % m_capacity)*m_reports.length
+	private double[] m_samples;
+	private int m_capacity;
+	private long m_sampleCount = 0;
+
+	/**
+	 * @param sim the simulation holding the reports
+	 * @param reportNames the names of the reports to read
+	 * @param capacity the number of samples kept before the oldest is overwritten
+	 */
+	public ReportRegistry(Simulation sim, String[] reportNames, int capacity)
+	{
+		m_reports = new Report[reportNames.length];
+		m_names = reportNames.clone();
+		for (int i = 0; i < reportNames.length; i++)
+		{
+			m_reports[i] = sim.getReportManager().getReport(reportNames[i]);
+			m_handles.put(reportNames[i], i);
+		}
+		m_capacity = Math.max(capacity, 1);
+		m_samples = new double[m_capacity*m_reports.length];
+	}
+
+	/** This method returns the handle of a report
+	 *
+	 * @param reportName the name the report was registered under
+	 * @return the handle used by the get methods
+	 */
+	public int getHandle(String reportName)
+	{
+		Integer handle = m_handles.get(reportName);
+		if (handle == null)
+		{
+			throw new IllegalArgumentException("The report " + reportName + " is not in the registry");
+		}
+		return handle;
+	}
+
+	public int getReportCount()
+	{
+		return m_reports.length;
+	}
+
+	public String getName(int handle)
+	{
+		return m_names[handle];
+	}
+
+	public Report getReport(int handle)
+	{
+		return m_reports[handle];
+	}
+
+	/** This method reads every report into the next row of the ring
+	 *
+	 * @return the number of the sample taken, starting at 0
+	 */
+	public long sample()
+	{
+		int offset = (int) (m_sampleCount % m_capacity)*m_reports.length;
+		for (int i = 0; i < m_reports.length; i++)
+		{
+			m_samples[offset + i] = m_reports[i].getReportMonitorValue();
+		}
+		return m_sampleCount++;
+	}// end method sample
+
+	// Forgets every sample, for starting the next case
+	public void clear()
+	{
+		m_sampleCount = 0;
+	}
+
+	public long getSampleCount()
+	{
+		return m_sampleCount;
+	}
+
+	// Returns the value of one report in the newest sample
+	public double getLatest(int handle)
+	{
+		return getValue(0, handle);
+	}
+
+	/** This method returns the value of one report in an earlier sample
+	 *
+	 * @param age 0 for the newest sample, 1 for the one before and so on
+	 * @param handle the handle of the report
+	 */
+	public double getValue(int age, int handle)
+	{
+		if (age < 0 || age >= m_sampleCount || age >= m_capacity)
+		{
+			throw new IndexOutOfBoundsException("Sample " + age + " back is not in the ring, " + m_sampleCount + " samples taken");
+		}
+		int row = (int) ((m_sampleCount - 1 - age) % m_capacity);
+		return m_samples[row*m_reports.length + handle];
+	}
+
+	/** This method copies the newest sample of every report
+	 *
+	 * @param values receives one value per handle, at least getReportCount long
+	 */
+	public void copyLatest(double[] values)
+	{
+		if (m_sampleCount == 0)
+		{
+			throw new IllegalStateException("No sample has been taken");
+		}
+		int row = (int) ((m_sampleCount - 1) % m_capacity);
+		System.arraycopy(m_samples, row*m_reports.length, values, 0, m_reports.length);
+	}
+
+}// end class ReportRegistry
@@ -0,0 +1,129 @@
+package starClasses;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+
+/**
+ * This class appends case results to a text journal shared by several processes. Each append takes
+ * an exclusive lock on the file, so lines from different workers never interleave. A line holds
+ * the case number, the worker number, the cell count, the four channel pressures, the iterations
+ * used, the cold start delta of a warm started case (see MeshElementData.setColdStartDelta) and the
+ * solve time in seconds, separated by commas.
+ * 
+ * @author cj8q5
+ *
+ */
+public class ResultJournal 
+{
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+	
+	// Number of fields of a complete line
+	private static final int FIELD_COUNT = 10;
+	
+	private String m_fileName;
+	
+	public ResultJournal(String fileName)
+	{
+		m_fileName = fileName;
+	}
+	
+	/** This method appends the results of one finished case
+	 * 
+	 * @param caseIndex the number of the case in the sweep
+	 * @param worker the number of the worker that ran it
+	 * @param mED the case holding its pressure, iteration and timing results
+	 */
+	public void append(int caseIndex, int worker, MeshElementData mED) throws IOException
+	{
+		double[] max = mED.getMaxPressures();
+		double[] min = mED.getMinPressures();
+		appendLine(caseIndex + "," + worker + "," + mED.getCellCount() + "," + 
+				max[0] + "," + min[0] + "," + max[1] + "," + min[1] + "," + 
+				mED.getIterationsUsed() + "," + mED.getColdStartDelta() + "," + mED.getSolveSeconds());
+	}
+	
+	/** This method appends one line to the journal while holding a lock on the whole file
+	 * 
+	 * @param line the text of the line without a line terminator
+	 */
+	public void appendLine(String line) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(m_fileName, "rw");
+		try
+		{
+			FileChannel channel = file.getChannel();
+			FileLock lock = channel.lock();
+			try
+			{
+				ByteBuffer bytes = ByteBuffer.wrap((line + "\n").getBytes(ASCII));
+				long position = channel.size();
+				while (bytes.hasRemaining())
+				{
+					position += channel.write(bytes, position);
+				}
+				channel.force(false);
+			}
+			finally
+			{
+				lock.release();
+			}
+		}
+		finally
+		{
+			file.close();
+		}
+	}// end method appendLine
+	
+	/** This method loads every journal line into a result store, a case that appears twice keeps its last line
+	 * 
+	 * @param caseCount the number of cases in the sweep
+	 * @return the results of the cases in the journal
+	 */
+	public SweepResultStore readResults(int caseCount) throws IOException
+	{
+		SweepResultStore results = new SweepResultStore(caseCount);
+		BufferedReader reader;
+		try
+		{
+			reader = new BufferedReader(new FileReader(m_fileName));
+		}
+		catch (FileNotFoundException e)
+		{
+			// No worker has finished a case yet
+			return results;
+		}
+		try
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				String[] values = line.split(",");
+				if (values.length != FIELD_COUNT)
+				{
+					// A worker that was killed mid-write leaves a partial last line
+					continue;
+				}
+				int caseIndex = Integer.parseInt(values[0]);
+				results.setCellCount(caseIndex, Long.parseLong(values[2]));
+				results.setMaxPressures(caseIndex, Double.parseDouble(values[3]), Double.parseDouble(values[5]));
+				results.setMinPressures(caseIndex, Double.parseDouble(values[4]), Double.parseDouble(values[6]));
+				results.setIterationsUsed(caseIndex, Integer.parseInt(values[7]));
+				results.setColdStartDelta(caseIndex, Integer.parseInt(values[8]));
+				results.setSolveSeconds(caseIndex, Double.parseDouble(values[9]));
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		return results;
+	}// end method readResults
+	
+}// end class ResultJournal
@@ -19,6 +19,7 @@ import star.vis.Scene;
 public class Scenes 
 {
 	private Simulation m_sim;
+	private FieldFunctionCache m_fieldFunctions;
 	private String m_sceneName;
 	private Scene m_scene;
 	private ScalarDisplayer m_scalarDisplayer;
@@ -26,6 +27,7 @@ public class Scenes
 	public Scenes(Simulation sim, String sceneName)
 	{
 		m_sim = sim;
+		m_fieldFunctions = FieldFunctionCache.forSimulation(sim);
 		m_sceneName = sceneName;
 	}
 	
@@ -57,7 +59,7 @@ public class Scenes
 		{
 			m_scalarDisplayer.getScalarDisplayQuantity().setFieldFunction(primitiveFieldFunction);
 		}
-		if(scalarOrVector == 0 || scalarOrVector == 1 || scalarOrVector == 2)
+		else if(scalarOrVector == 0 || scalarOrVector == 1 || scalarOrVector == 2)
 		{
 			VectorComponentFieldFunction vectorComponentFieldFunction = 
 				      ((VectorComponentFieldFunction) primitiveFieldFunction.getComponentFunction(scalarOrVector));
@@ -73,6 +75,28 @@ public class Scenes
 		}
 	}
 	
+	/**
+	 * This method sets scalar scene for a field function given by name, the function and its vector
+	 * component or magnitude are kept by the FieldFunctionCache of the simulation
+	 * @param fieldFunctionName the name of the field function, e.g. "Velocity"
+	 * @param scalarOrVector	for a scalar input "4" for a vector magnitude input "3" for a vector component input "0", "1", or "2"
+	 */
+	public void setSceneFieldFunction(String fieldFunctionName, int scalarOrVector)
+	{
+		if(scalarOrVector == 4)
+		{
+			m_scalarDisplayer.getScalarDisplayQuantity().setFieldFunction(m_fieldFunctions.getFunction(fieldFunctionName));
+		}
+		else if(scalarOrVector == 0 || scalarOrVector == 1 || scalarOrVector == 2)
+		{
+			m_scalarDisplayer.getScalarDisplayQuantity().setFieldFunction(m_fieldFunctions.getComponentFunction(fieldFunctionName, scalarOrVector));
+		}
+		else
+		{
+			m_scalarDisplayer.getScalarDisplayQuantity().setFieldFunction(m_fieldFunctions.getMagnitudeFunction(fieldFunctionName));
+		}
+	}
+	
 	/** This method adds boundaries to a scene 
 	 * 
 	 * @param scene the Star CCM+ object scene 
@@ -1,78 +1,206 @@
 package starClasses;
 
 import star.base.report.AreaAverageReport;
-import star.base.report.MaxReport;
-import star.base.report.MinReport;
 import star.common.Simulation;
+import star.common.Solution;
+import star.meshing.MeshPipelineController;
 /** 
  * 
  * @author cj8q5
  *
  * This class sets various conditions in the simulation using data read in from each Mesh Data object
  */
-public class SimRunner 
+public class SimRunner implements CaseRunner
 {
+    // The pressure reports are always the first handles of the registry, in this order
+    private static final String[] PRESSURE_REPORTS = {"MaxPressure_LargeCh", "MinPressure_LargeCh",
+    		"MaxPressure_SmallCh", "MinPressure_SmallCh"};
+    private static final int MAX_PRESSURE_LG = 0;
+    private static final int MIN_PRESSURE_LG = 1;
+    private static final int MAX_PRESSURE_SM = 2;
+    private static final int MIN_PRESSURE_SM = 3;
+    
+    // Number of samples the report registry keeps for each case
+    private static final int SAMPLE_CAPACITY = 64;
+    
 	private Simulation m_sim;
-    private MaxReport m_maxPressureLargeCh;
-    private MinReport m_minPressureLargeCh;
-    private MaxReport m_maxPressureSmallCh;
-    private MinReport m_minPressureSmallCh;
+    private MeshSettingsApplier m_meshApplier = null;
+    private ReportRegistry m_reports;
+    private double[] m_reportValues;
+    
+    // Adaptive iteration settings, a chunk size of 0 runs the fixed iteration count
+    private int m_chunkIterations = 0;
+    private PlateauDetector m_plateauDetector = null;
+    
+    // Warm start settings, the iterations of the last cold started case are the baseline of the cold start delta
+    private boolean m_warmStart = false;
+    private boolean m_hasSolution = false;
+    private int m_coldStartIterations = -1;
     
     // Constructor receives the current simulation as a Simulation object
     public SimRunner(Simulation sim) 
+    {
+        this(sim, new String[0]);
+    }
+    
+    /** This constructor also sets the applier that puts the mesh settings of each case into the model
+     * 
+     * @param sim the current simulation
+     * @param meshApplier applies the element counts and spacings of a case before the mesh is regenerated
+     */
+    public SimRunner(Simulation sim, MeshSettingsApplier meshApplier)
+    {
+        this(sim, new String[0]);
+        m_meshApplier = meshApplier;
+    }
+    
+    /** This constructor also tracks extra reports, which are sampled with the pressure reports and
+     * must settle too before an adaptive case stops
+     * 
+     * @param sim the current simulation
+     * @param extraReports the names of the extra reports
+     */
+    public SimRunner(Simulation sim, String[] extraReports)
     {
         m_sim = sim;
-        m_maxPressureLargeCh = ((MaxReport) m_sim.getReportManager().getReport("MaxPressure_LargeCh"));
-        m_minPressureLargeCh = ((MinReport) m_sim.getReportManager().getReport("MinPressure_LargeCh"));
-        m_maxPressureSmallCh = ((MaxReport) m_sim.getReportManager().getReport("MaxPressure_SmallCh"));
-        m_minPressureSmallCh = ((MinReport) m_sim.getReportManager().getReport("MinPressure_SmallCh"));
+        String[] names = new String[PRESSURE_REPORTS.length + extraReports.length];
+        System.arraycopy(PRESSURE_REPORTS, 0, names, 0, PRESSURE_REPORTS.length);
+        System.arraycopy(extraReports, 0, names, PRESSURE_REPORTS.length, extraReports.length);
+        m_reports = new ReportRegistry(m_sim, names, SAMPLE_CAPACITY);
+        m_reportValues = new double[names.length];
+    }
+    
+    // Method to set the applier that puts the mesh settings of each case into the model
+    public void setMeshApplier(MeshSettingsApplier meshApplier)
+    {
+        m_meshApplier = meshApplier;
+    }
+    
+    // Returns the registry holding the report samples of the last case
+    public ReportRegistry getReportRegistry()
+    {
+        return m_reports;
+    }
+
+    /** This method makes runCase stop as soon as the pressure reports plateau instead of always
+     * running the full iteration count, which then becomes the upper limit
+     * 
+     * @param chunkIterations the number of iterations run between checks of the reports
+     * @param tolerance the relative change between checks below which a report counts as settled
+     * @param requiredQuietChunks the number of checks in a row every report must be settled for
+     */
+    public void setAdaptiveIterations(int chunkIterations, double tolerance, int requiredQuietChunks)
+    {
+    	m_chunkIterations = chunkIterations;
+    	m_plateauDetector = new PlateauDetector(m_reports.getReportCount(), tolerance, requiredQuietChunks);
+    }
+    
+    // Method to go back to running the fixed iteration count
+    public void setFixedIterations()
+    {
+    	m_chunkIterations = 0;
+    	m_plateauDetector = null;
+    }
+
+    /** This method turns warm starting on or off. With warm starting every case after the first keeps
+     * the fields of the previous case, which StarCCM+ maps onto the regenerated mesh, and only the
+     * iteration history is cleared. The first case is always started from scratch.
+     * 
+     * @param warmStart true to start each case from the previous solution
+     */
+    public void setWarmStart(boolean warmStart)
+    {
+    	m_warmStart = warmStart;
+    	m_hasSolution = false;
+    	m_coldStartIterations = -1;
+    }
+
+    /** This method puts the element counts and spacings of a case into the mesh operations and
+     * regenerates the volume mesh
+     * 
+     * @param mED the element counts of the case
+     * @param mSD the spacings of the case
+     */
+    public void prepareMesh(MeshElementData mED, MeshSpacingData mSD)
+    {
+        if (m_meshApplier == null)
+        {
+            throw new IllegalStateException("No mesh applier has been set, every case would be run on the same mesh");
+        }
+        m_meshApplier.applyMeshSettings(mED, mSD);
+        m_sim.println("Generating the volume mesh for fluid mesh density " + mED.getMeshDensity());
+        m_sim.get(MeshPipelineController.class).generateVolumeMesh();
     }
 
     // Method to set variables, clear solution, and run the simulation
     public void runCase(MeshElementData mED, MeshSpacingData mSD, int iterations) 
     {
-    	int extrudeCell = mED.getExtrudeCell();
-    	int inletX = mED.getInletX();
-    	int largeInletY = mED.getLargeInletY();
-    	int smallInletY = mED.getSmallInletY();
-    	int plateInletY = mED.getPlateInletY();
-    	
-    	int largeChannelX = mED.getLgChannelX();
-    	int largeChannelY = mED.getLgChannelY();
-    	int smallChannelX = mED.getSmChannelX();
-    	int smallChannelY = mED.getSmChannelY();
-    	
-    	int outletX = mED.getOutletX();
-    	int largeOutletY = mED.getLargeOutletY();
-    	int smallOutletY = mED.getSmallOutletY();
-    	int plateOutletY = mED.getPlateOutletY();
-    	
-    	double inletSpacingX = mSD.getInletSpacingX();
-    	double inletSpacingY = mSD.getInletSpacingY();
-    	double outletSpacingX = mSD.getOutletSpacingX();
-    	double outletSpacingY = mSD.getOutletSpacingY();
-    	double smChannelSpacingX = mSD.getSmChannelSpacingX();
-    	double smChannelSpacingY = mSD.getSmChannelSpacingY();
-    	double lgChannelSpacingX = mSD.getLgChannelSpacingX();
-    	double lgChannelSpacingY = mSD.getLgChannelSpacingY();
-    	
-    	
+        // Without an iteration there are no reports to record
+        if (iterations <= 0)
+        {
+            throw new IllegalArgumentException("A case needs at least one iteration, not " + iterations);
+        }
+
         // Print line to output window to show how far the process has reached
         m_sim.println("Inside runCase with fluid mesh density at " + mED.getMeshDensity());
 
-        // Clear any previous solution
-        m_sim.clearSolution();
-
-        // Run for x iterations
-        m_sim.getSimulationIterator().run(iterations);
+        boolean warmStart = m_warmStart && m_hasSolution;
+        if (warmStart)
+        {
+            // Keep the mapped fields of the previous case and only clear the iteration history
+            m_sim.getSolution().clearSolution(Solution.Clear.History);
+        }
+        else
+        {
+            // Clear any previous solution
+            m_sim.clearSolution();
+        }
+        long startTime = System.nanoTime();
 
-        // Get the max pressure in left channel
-        double maxPressureLg = m_maxPressureLargeCh.getReportMonitorValue();
-        double minPressureLg = m_minPressureLargeCh.getReportMonitorValue();
-        double maxPressureSm = m_maxPressureSmallCh.getReportMonitorValue();
-        double minPressureSm = m_minPressureSmallCh.getReportMonitorValue();
+        m_reports.clear();
+        int iterationsUsed = 0;
+        if (m_chunkIterations <= 0)
+        {
+            // Run for x iterations
+            m_sim.getSimulationIterator().run(iterations);
+            iterationsUsed = iterations;
+            m_reports.sample();
+        }
+        else
+        {
+            // Run in chunks until the reports plateau or the iteration limit is reached
+            m_plateauDetector.reset();
+            while (iterationsUsed < iterations)
+            {
+                int chunk = Math.min(m_chunkIterations, iterations - iterationsUsed);
+                m_sim.getSimulationIterator().run(chunk);
+                iterationsUsed += chunk;
+                m_reports.sample();
+                m_reports.copyLatest(m_reportValues);
+                if (m_plateauDetector.addSample(m_reportValues))
+                {
+                    break;
+                }
+            }
+            m_sim.println("Reports settled after " + iterationsUsed + " of " + iterations + " iterations");
+        }
+        
+        mED.setMaxPressures(m_reports.getLatest(MAX_PRESSURE_LG), m_reports.getLatest(MAX_PRESSURE_SM));
+        mED.setMinPressures(m_reports.getLatest(MIN_PRESSURE_LG), m_reports.getLatest(MIN_PRESSURE_SM));
+        mED.setIterationsUsed(iterationsUsed);
+        mED.setSolveSeconds((System.nanoTime() - startTime)/1.0e9);
         
-        mED.setMaxPressures(maxPressureLg, maxPressureSm);
-        mED.setMinPressures(minPressureLg, minPressureSm);
+        // The delta is against the last case started from scratch, which ran on another mesh
+        m_hasSolution = true;
+        if (warmStart)
+        {
+            mED.setColdStartDelta(m_coldStartIterations - iterationsUsed);
+            m_sim.println("Warm start used " + iterationsUsed + " iterations, the last cold start used " + m_coldStartIterations);
+        }
+        else
+        {
+            m_coldStartIterations = iterationsUsed;
+            mED.setColdStartDelta(0);
+        }
     }
 }
@@ -1,77 +1,294 @@
 package starClasses;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import star.base.neo.NeoObjectVector;
+import star.common.Boundary;
 import star.common.PrimitiveFieldFunction;
+import star.common.Region;
 import star.common.Simulation;
 import star.common.StarUpdate;
 import star.post.SolutionHistoryManager;
 import star.post.SolutionHistory;
 
-public class SolutionHistoryCreator 
+/**
+ * This class creates the solution history of a run. Fields added without an update frequency go to
+ * the main .simh file and are written at the frequency of setUpdateSettings. Fields added with their
+ * own frequency go to one extra .simh file per frequency next to the main file, named
+ * <name>_every<frequency>.simh, so slowly varying fields are not written on every update. The
+ * frequency of the main file must be set before any field gets its own frequency, so a field asking
+ * for the main frequency always goes to the main file. setRegions and setBoundaries limit every
+ * history file to part of the model.
+ *
+ * The .simh format has no spatial decimation, FieldDecimator thins out exported field data instead.
+ * It cannot be read outside STAR-CCM+ either, createIndexedHistory keeps an indexed copy of the
+ * fields that FieldHistoryReader reads step by step.
+ *
+ * @author cj8q5
+ *
+ */
+public class SolutionHistoryCreator
 {
 
 	private Simulation m_sim;
+	private FieldFunctionCache m_fieldFunctions;
 	private SolutionHistory m_solutionHistory;
 	private StarUpdate m_starUpdate;
-	
+	private String m_simhFileLocation;
+	private String m_updateMode = null;
+	private int m_updateFrequency = 1;
+
+	// Histories for fields with their own update frequency, keyed by the frequency
+	private Map<Integer, SolutionHistory> m_frequencyHistories = new LinkedHashMap<Integer, SolutionHistory>();
+	private Map<SolutionHistory, List<Object>> m_scalars = new LinkedHashMap<SolutionHistory, List<Object>>();
+	private Map<SolutionHistory, List<Object>> m_vectors = new LinkedHashMap<SolutionHistory, List<Object>>();
+	private List<String> m_scalarNames = new ArrayList<String>();
+	private List<String> m_vectorNames = new ArrayList<String>();
+	private Object[] m_regions = null;
+	private Object[] m_boundaries = null;
+
 	public SolutionHistoryCreator(Simulation sim, String simhFileLocation)
 	{
 	    m_solutionHistory = sim.get(SolutionHistoryManager.class).createForFile(simhFileLocation, false);
 	    m_sim = sim;
+	    m_fieldFunctions = FieldFunctionCache.forSimulation(sim);
+	    m_simhFileLocation = simhFileLocation;
+	    m_scalars.put(m_solutionHistory, new ArrayList<Object>());
+	    m_vectors.put(m_solutionHistory, new ArrayList<Object>());
 	}
-	
+
+	/** This method sets when the main history is written
+	 *
+	 * @param timestepOrIteration "Iteration" or "Time Step"
+	 * @param updateFrequency the number of iterations or time steps between writes
+	 */
 	public void setUpdateSettings(String timestepOrIteration, int updateFrequency)
 	{
+	    // Everything is checked before any setting changes, a rejected call leaves the histories as they were
+	    if (!"Iteration".equals(timestepOrIteration) && !"Time Step".equals(timestepOrIteration))
+	    {
+	    	throw new IllegalArgumentException("The update mode must be \"Iteration\" or \"Time Step\", not " + timestepOrIteration);
+	    }
+	    if (updateFrequency < 1)
+	    {
+	    	throw new IllegalArgumentException("The update frequency must be at least 1, not " + updateFrequency);
+	    }
+	    if (m_frequencyHistories.containsKey(updateFrequency))
+	    {
+	    	throw new IllegalArgumentException("The fields written every " + updateFrequency
+	    			+ " already have their own history file, the main history cannot take the same frequency");
+	    }
 	    m_starUpdate = m_solutionHistory.getUpdate();
-	    if (timestepOrIteration.equals("Iteration"))
+	    m_updateMode = timestepOrIteration;
+	    m_updateFrequency = updateFrequency;
+	    applyUpdateSettings(m_starUpdate, updateFrequency);
+
+	    // Histories created under an earlier mode follow the new mode with their own frequency
+	    for (Map.Entry<Integer, SolutionHistory> entry : m_frequencyHistories.entrySet())
 	    {
-	    	m_starUpdate.setUpdateMode(1);
+	    	applyUpdateSettings(entry.getValue().getUpdate(), entry.getKey());
 	    }
-	    else if (timestepOrIteration.equals("Time Step"))
+	}
+
+	private void applyUpdateSettings(StarUpdate starUpdate, int updateFrequency)
+	{
+	    if (m_updateMode == null)
+	    {
+	    	return;
+	    }
+	    if (m_updateMode.equals("Iteration"))
 	    {
-	    	m_starUpdate.setUpdateMode(2);
+	    	starUpdate.setUpdateMode(1);
+	    	starUpdate.getIterationUpdateFrequency().setIterations(updateFrequency);
+	    }
+	    else
+	    {
+	    	starUpdate.setUpdateMode(2);
+	    	starUpdate.getTimeStepUpdateFrequency().setTimeSteps(updateFrequency);
 	    }
 	}
-	
+
 	public void addScalarFieldFunction(String[] fieldFunction)
 	{
-		if (fieldFunction.length == 1)
-		{
-			PrimitiveFieldFunction primitiveFieldFunction_0 = 
-					((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction(fieldFunction[0]));
-			m_solutionHistory.setScalars(new NeoObjectVector(new Object[] {primitiveFieldFunction_0}));
-		}
-		else if (fieldFunction.length > 1)
+		addFieldFunctions(m_solutionHistory, fieldFunction, true);
+	}
+
+	public void addVectorFieldFunction(String[] fieldFunction)
+	{
+		addFieldFunctions(m_solutionHistory, fieldFunction, false);
+	}
+
+	/** This method adds scalar fields that are written at their own frequency instead of that of the main history,
+	 * setUpdateSettings must have been called first
+	 *
+	 * @param fieldFunction the names of the field functions
+	 * @param updateFrequency the number of iterations or time steps between writes of these fields
+	 */
+	public void addScalarFieldFunction(String[] fieldFunction, int updateFrequency)
+	{
+		addFieldFunctions(getHistoryForFrequency(updateFrequency), fieldFunction, true);
+	}
+
+	public void addVectorFieldFunction(String[] fieldFunction, int updateFrequency)
+	{
+		addFieldFunctions(getHistoryForFrequency(updateFrequency), fieldFunction, false);
+	}
+
+	private void addFieldFunctions(SolutionHistory history, String[] fieldFunction, boolean scalar)
+	{
+		List<Object> fields = scalar ? m_scalars.get(history) : m_vectors.get(history);
+		for (int i = 0; i < fieldFunction.length; i++)
 		{
-			Object[] fieldFunctionVector =  new Object[fieldFunction.length];
-			for (int i = 0; i < fieldFunction.length; i++)
+			PrimitiveFieldFunction primitiveFieldFunction = m_fieldFunctions.getPrimitiveFunction(fieldFunction[i]);
+			if (!fields.contains(primitiveFieldFunction))
 			{
-				PrimitiveFieldFunction primitiveFieldFunction = 
-						((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction(fieldFunction[i]));
-				fieldFunctionVector[i] = primitiveFieldFunction;
+				fields.add(primitiveFieldFunction);
 			}
-			m_solutionHistory.setScalars(new NeoObjectVector(fieldFunctionVector));
+			List<String> names = scalar ? m_scalarNames : m_vectorNames;
+			if (!names.contains(fieldFunction[i]))
+			{
+				names.add(fieldFunction[i]);
+			}
+		}
+		if (scalar)
+		{
+			history.setScalars(new NeoObjectVector(fields.toArray()));
+		}
+		else
+		{
+			history.setVectors(new NeoObjectVector(fields.toArray()));
 		}
 	}
-	
-	public void addVectorFieldFunction(String[] fieldFunction)
+
+	// Returns the history file written at a frequency, creating it the first time
+	private SolutionHistory getHistoryForFrequency(int updateFrequency)
 	{
-		if (fieldFunction.length == 1)
+		if (m_updateMode == null)
 		{
-			PrimitiveFieldFunction primitiveFieldFunction_0 = 
-					((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction(fieldFunction[0]));
-			m_solutionHistory.setVectors(new NeoObjectVector(new Object[] {primitiveFieldFunction_0}));
+			throw new IllegalStateException("Call setUpdateSettings before giving fields their own update frequency");
 		}
-		else if (fieldFunction.length > 1)
+		if (updateFrequency == m_updateFrequency)
 		{
-			Object[] fieldFunctionVector =  new Object[fieldFunction.length];
-			for (int i = 0; i < fieldFunction.length; i++)
+			return m_solutionHistory;
+		}
+		SolutionHistory history = m_frequencyHistories.get(updateFrequency);
+		if (history == null)
+		{
+			String baseName = m_simhFileLocation.endsWith(".simh") ?
+					m_simhFileLocation.substring(0, m_simhFileLocation.length() - 5) : m_simhFileLocation;
+			history = m_sim.get(SolutionHistoryManager.class).createForFile(baseName + "_every" + updateFrequency + ".simh", false);
+			m_frequencyHistories.put(updateFrequency, history);
+			m_scalars.put(history, new ArrayList<Object>());
+			m_vectors.put(history, new ArrayList<Object>());
+			applyUpdateSettings(history.getUpdate(), updateFrequency);
+			applyParts(history);
+		}
+		return history;
+	}
+
+	/** This method limits every history file to some regions
+	 *
+	 * @param regionNames the names of the regions written
+	 */
+	public void setRegions(String[] regionNames)
+	{
+		m_regions = new Object[regionNames.length];
+		for (int i = 0; i < regionNames.length; i++)
+		{
+			m_regions[i] = m_sim.getRegionManager().getRegion(regionNames[i]);
+		}
+		applyPartsToAll();
+	}
+
+	/** This method limits every history file to some boundaries of a region
+	 *
+	 * @param regionName the name of the region holding the boundaries
+	 * @param boundaryNames the full names of the boundaries written, e.g. "Fluid.FSI_Back"
+	 */
+	public void setBoundaries(String regionName, String[] boundaryNames)
+	{
+		Region region = m_sim.getRegionManager().getRegion(regionName);
+		m_boundaries = new Object[boundaryNames.length];
+		for (int i = 0; i < boundaryNames.length; i++)
+		{
+			Boundary boundary = region.getBoundaryManager().getBoundary(boundaryNames[i]);
+			m_boundaries[i] = boundary;
+		}
+		applyPartsToAll();
+	}
+
+	private void applyPartsToAll()
+	{
+		for (SolutionHistory history : m_scalars.keySet())
+		{
+			applyParts(history);
+		}
+	}
+
+	private void applyParts(SolutionHistory history)
+	{
+		if (m_regions != null)
+		{
+			history.getRegions().setObjects(m_regions);
+		}
+		if (m_boundaries != null)
+		{
+			history.getBoundaries().setObjects(m_boundaries);
+		}
+	}
+
+	// Returns the names of every scalar field written to any of the history files
+	public String[] getScalarFieldNames()
+	{
+		return m_scalarNames.toArray(new String[m_scalarNames.size()]);
+	}
+
+	public String[] getVectorFieldNames()
+	{
+		return m_vectorNames.toArray(new String[m_vectorNames.size()]);
+	}
+
+	/** This method returns the fields in the form FieldHistoryStore keeps them, each vector as its three components
+	 *
+	 * @return the scalar names followed by name[0], name[1] and name[2] for each vector
+	 */
+	public String[] getHistoryFieldNames()
+	{
+		List<String> names = new ArrayList<String>(m_scalarNames);
+		for (String vector : m_vectorNames)
+		{
+			for (int component = 0; component < 3; component++)
 			{
-				PrimitiveFieldFunction primitiveFieldFunction = 
-						((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction(fieldFunction[i]));
-				fieldFunctionVector[i] = primitiveFieldFunction;
+				names.add(vector + "[" + component + "]");
 			}
-			m_solutionHistory.setVectors(new NeoObjectVector(fieldFunctionVector));
 		}
+		return names.toArray(new String[names.size()]);
+	}
+
+	/** This method starts a field history next to the main .simh file, named <name>.fhs with its index in
+	 * <name>.fhs.idx, holding the fields of getHistoryFieldNames. Steps are added to the returned writer
+	 * from exported field data each time the history is updated, and FieldHistoryReader reads any step
+	 * of it back without reading the steps before.
+	 *
+	 * @param quanta the quantum of each field, the largest error allowed is half of it, see FieldHistoryStore
+	 * @param pointCount the number of points of every step
+	 * @param keyframeInterval the number of steps between keyframes
+	 */
+	public FieldHistoryWriter createIndexedHistory(double[] quanta, int pointCount, int keyframeInterval) throws IOException
+	{
+		String baseName = m_simhFileLocation.endsWith(".simh") ?
+				m_simhFileLocation.substring(0, m_simhFileLocation.length() - 5) : m_simhFileLocation;
+		FieldHistoryStore store = new FieldHistoryStore(getHistoryFieldNames(), quanta, pointCount, keyframeInterval);
+		return new FieldHistoryWriter(baseName + ".fhs", store);
+	}
+
+	// Returns the number of history files, the main one and one for each extra update frequency
+	public int getHistoryCount()
+	{
+		return 1 + m_frequencyHistories.size();
 	}
 }
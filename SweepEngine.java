@@ -0,0 +1,222 @@
+package starClasses;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class runs a list of mesh cases through a CaseRunner. The cases are ordered from the
+ * coarsest to the finest mesh with identical meshes next to each other, so the mesh is only rebuilt
+ * when it actually changes. The results of a finished case are handed to a background thread that
+ * appends them to the result file while the next case is meshed and solved.
+ *
+ * The results are also kept in a SweepResultStore, indexed by the order the cases were added.
+ *
+ * @author cj8q5
+ *
+ */
+public class SweepEngine
+{
+	private CaseRunner m_runner;
+	private int m_iterations;
+	private List<MeshElementData> m_elementCases = new ArrayList<MeshElementData>();
+	private List<MeshSpacingData> m_spacingCases = new ArrayList<MeshSpacingData>();
+	private int m_remeshCount = 0;
+
+	/**
+	 * @param runner runs each case, a SimRunner for a StarCCM+ simulation
+	 * @param iterations the number of iterations each case is run for
+	 */
+	public SweepEngine(CaseRunner runner, int iterations)
+	{
+		m_runner = runner;
+		m_iterations = iterations;
+	}
+
+	public void addCase(MeshElementData mED, MeshSpacingData mSD)
+	{
+		m_elementCases.add(mED);
+		m_spacingCases.add(mSD);
+	}
+
+	/** This method adds every case of a pair of case tables
+	 *
+	 * @param elements the element counts of the cases
+	 * @param spacings the spacings of the cases, one row for each row of elements
+	 */
+	public void addCases(MeshElementCaseTable elements, MeshSpacingCaseTable spacings)
+	{
+		if (elements.size() != spacings.size())
+		{
+			throw new IllegalArgumentException(elements.size() + " element cases but " + spacings.size() + " spacing cases");
+		}
+		for (int i = 0; i < elements.size(); i++)
+		{
+			addCase(elements.getCase(i), spacings.getCase(i));
+		}
+	}
+
+	// Returns the number of times the last run rebuilt the mesh
+	public int getRemeshCount()
+	{
+		return m_remeshCount;
+	}
+
+	/** This method runs every case and streams one line per finished case to the result file
+	 *
+	 * @param resultFile path of the comma separated result file
+	 * @return the results of every case, indexed in the order the cases were added
+	 * @throws IOException if the result file cannot be written
+	 */
+	public SweepResultStore run(String resultFile) throws IOException
+	{
+		int caseCount = m_elementCases.size();
+		SweepResultStore results = new SweepResultStore(caseCount);
+		Integer[] order = getRunOrder();
+		m_remeshCount = 0;
+
+		final BufferedWriter writer = new BufferedWriter(new FileWriter(resultFile));
+		ExecutorService resultWriter = Executors.newSingleThreadExecutor();
+		Future<Void> pendingWrite = null;
+		try
+		{
+			writer.write("Case,CellCount,IterationsUsed,ColdStartDelta,SolveSeconds,MaxPressure_LargeCh,MinPressure_LargeCh,MaxPressure_SmallCh,MinPressure_SmallCh");
+			writer.newLine();
+
+			int previous = -1;
+			for (int i = 0; i < caseCount; i++)
+			{
+				int current = order[i];
+				MeshElementData mED = m_elementCases.get(current);
+				MeshSpacingData mSD = m_spacingCases.get(current);
+
+				if (previous < 0 || !sameMesh(previous, current))
+				{
+					m_runner.prepareMesh(mED, mSD);
+					m_remeshCount++;
+				}
+				m_runner.runCase(mED, mSD, m_iterations);
+				results.record(current, mED);
+
+				// The line is built here so the writer thread never touches the case objects
+				final String line = current + "," + mED.getCellCount() + "," + mED.getIterationsUsed() + "," +
+						mED.getColdStartDelta() + "," + mED.getSolveSeconds() + "," +
+						mED.getMaxPressures()[0] + "," + mED.getMinPressures()[0] + "," +
+						mED.getMaxPressures()[1] + "," + mED.getMinPressures()[1];
+				waitFor(pendingWrite);
+				pendingWrite = resultWriter.submit(new Callable<Void>()
+				{
+					public Void call() throws IOException
+					{
+						writer.write(line);
+						writer.newLine();
+						writer.flush();
+						return null;
+					}
+				});
+				previous = current;
+			}
+			waitFor(pendingWrite);
+		}
+		finally
+		{
+			resultWriter.shutdown();
+			writer.close();
+		}
+		return results;
+	}// end method run
+
+	/** This method orders the cases by cell count and then by every mesh value, so identical meshes end up together
+	 */
+	private Integer[] getRunOrder()
+	{
+		Integer[] order = new Integer[m_elementCases.size()];
+		for (int i = 0; i < order.length; i++)
+		{
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			public int compare(Integer a, Integer b)
+			{
+				return compareMeshes(a, b);
+			}
+		});
+		return order;
+	}
+
+	private boolean sameMesh(int a, int b)
+	{
+		return compareMeshes(a, b) == 0;
+	}
+
+	private int compareMeshes(int a, int b)
+	{
+		MeshElementData elementsA = m_elementCases.get(a);
+		MeshElementData elementsB = m_elementCases.get(b);
+		int result = compare(elementsA.getCellCount(), elementsB.getCellCount());
+		int[] valuesA = getElementCounts(elementsA);
+		int[] valuesB = getElementCounts(elementsB);
+		for (int i = 0; result == 0 && i < valuesA.length; i++)
+		{
+			result = compare(valuesA[i], valuesB[i]);
+		}
+		double[] spacingsA = getSpacings(m_spacingCases.get(a));
+		double[] spacingsB = getSpacings(m_spacingCases.get(b));
+		for (int i = 0; result == 0 && i < spacingsA.length; i++)
+		{
+			result = Double.compare(spacingsA[i], spacingsB[i]);
+		}
+		return result;
+	}// end method compareMeshes
+
+	private static int compare(long a, long b)
+	{
+		return (a < b) ? -1 : ((a == b) ? 0 : 1);
+	}
+
+	// Returns the element counts that make up the mesh of a case, RecordingCaseRunner compares meshes with them too
+	static int[] getElementCounts(MeshElementData m)
+	{
+		return new int[] {m.getExtrudeCell(), m.getInletX(), m.getLargeInletY(), m.getSmallInletY(), m.getPlateInletY(),
+				m.getOutletX(), m.getLargeOutletY(), m.getSmallOutletY(), m.getPlateOutletY(),
+				m.getSmChannelX(), m.getSmChannelY(), m.getLgChannelX(), m.getLgChannelY()};
+	}
+
+	static double[] getSpacings(MeshSpacingData m)
+	{
+		return new double[] {m.getInletSpacingX(), m.getInletSpacingY(), m.getOutletSpacingX(), m.getOutletSpacingY(),
+				m.getSmChannelSpacingX(), m.getSmChannelSpacingY(), m.getLgChannelSpacingX(), m.getLgChannelSpacingY()};
+	}
+
+	private static void waitFor(Future<Void> write) throws IOException
+	{
+		if (write == null)
+		{
+			return;
+		}
+		try
+		{
+			write.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing results", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IOException("Writing results failed", e.getCause());
+		}
+	}
+
+}// end class SweepEngine
@@ -0,0 +1,89 @@
+package starClasses;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This class checks with a RecordingCaseRunner that SweepEngine builds each distinct mesh exactly
+ * once and goes from the coarsest to the finest mesh. The cases are added shuffled, with repeated
+ * meshes and with two meshes of the same cell count that differ only in a spacing. It runs
+ * without StarCCM+:
+ *
+ *     java -cp classes starClasses.SweepEngineCheck
+ *
+ * A failed check ends with an IllegalStateException.
+ *
+ * @author cj8q5
+ *
+ */
+public class SweepEngineCheck
+{
+	private static final int ITERATIONS = 10;
+
+	public static void main(String[] args) throws IOException
+	{
+		MeshElementData[] elements = {
+				createElements(20), createElements(10), createElements(40), createElements(10),
+				createElements(20), createElements(40), createElements(20)};
+		MeshSpacingData[] spacings = {
+				createSpacings(0.1), createSpacings(0.1), createSpacings(0.1), createSpacings(0.1),
+				createSpacings(0.2), createSpacings(0.1), createSpacings(0.1)};
+		int distinctMeshes = 4;
+
+		RecordingCaseRunner runner = new RecordingCaseRunner();
+		SweepEngine engine = new SweepEngine(runner, ITERATIONS);
+		for (int i = 0; i < elements.length; i++)
+		{
+			engine.addCase(elements[i], spacings[i]);
+		}
+
+		File resultFile = File.createTempFile("sweepcheck", ".csv");
+		SweepResultStore results;
+		try
+		{
+			results = engine.run(resultFile.getPath());
+		}
+		finally
+		{
+			resultFile.delete();
+		}
+
+		check(runner.getRunCount() == elements.length, "ran " + runner.getRunCount() + " of " + elements.length + " cases");
+		check(runner.getPrepareCount() == distinctMeshes, "prepared " + runner.getPrepareCount() + " meshes for "
+				+ distinctMeshes + " distinct ones");
+		check(engine.getRemeshCount() == runner.getPrepareCount(), "counted " + engine.getRemeshCount() + " remeshes but prepared "
+				+ runner.getPrepareCount());
+		check(!runner.hasRepeatedMesh(), "prepared a mesh more than once");
+		for (int i = 1; i < runner.getPrepareCount(); i++)
+		{
+			check(runner.getPreparedCellCount(i - 1) <= runner.getPreparedCellCount(i), "prepared " + runner.getPreparedCellCount(i)
+					+ " cells after " + runner.getPreparedCellCount(i - 1));
+		}
+		for (int i = 0; i < elements.length; i++)
+		{
+			check(results.hasResults(i), "case " + i + " has no results");
+			check(results.getIterationsUsed(i) == ITERATIONS, "case " + i + " used " + results.getIterationsUsed(i) + " iterations");
+		}
+		System.out.println("SweepEngine check passed: " + elements.length + " cases on " + runner.getPrepareCount() + " meshes");
+	}// end method main
+
+	// Returns a case whose element counts all scale with the given count
+	private static MeshElementData createElements(int count)
+	{
+		return new MeshElementData(count, count, count, count, count, count, count, count, count, count, count, count, count);
+	}
+
+	private static MeshSpacingData createSpacings(double spacing)
+	{
+		return new MeshSpacingData(spacing, spacing, spacing, spacing, spacing, spacing, spacing, spacing);
+	}
+
+	private static void check(boolean condition, String failure)
+	{
+		if (!condition)
+		{
+			throw new IllegalStateException("SweepEngine check failed, the sweep " + failure);
+		}
+	}
+
+}// end class SweepEngineCheck
@@ -0,0 +1,220 @@
+package starClasses;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * This class holds the pressure results of every case in a sweep in preallocated columns, one
+ * array per value, instead of one MeshElementData object per case. The pressure drops are derived
+ * the first time they are asked for and cached until the max or min pressures of the case change.
+ *
+ * @author cj8q5
+ *
+ */
+public class SweepResultStore
+{
+	// Channel indices, the same order as the arrays of MeshElementData
+	public static final int LARGE_CHANNEL = 0;
+	public static final int SMALL_CHANNEL = 1;
+
+	private int m_caseCount;
+	private long[] m_cellCounts;
+	private double[][] m_maxPressures = new double[2][];
+	private double[][] m_minPressures = new double[2][];
+	private double[][] m_pressureDrops = new double[2][];
+	private int[] m_iterationsUsed;
+	private int[] m_coldStartDelta;
+	private double[] m_solveSeconds;
+	private boolean[] m_dropsValid;
+	private boolean[] m_hasResults;
+
+	/**
+	 * @param caseCount the number of cases in the sweep, every column is allocated up front
+	 */
+	public SweepResultStore(int caseCount)
+	{
+		m_caseCount = caseCount;
+		m_cellCounts = new long[caseCount];
+		for (int channel = 0; channel < 2; channel++)
+		{
+			m_maxPressures[channel] = new double[caseCount];
+			m_minPressures[channel] = new double[caseCount];
+			m_pressureDrops[channel] = new double[caseCount];
+		}
+		m_iterationsUsed = new int[caseCount];
+		m_coldStartDelta = new int[caseCount];
+		m_solveSeconds = new double[caseCount];
+		m_dropsValid = new boolean[caseCount];
+		m_hasResults = new boolean[caseCount];
+	}
+
+	public int getCaseCount()
+	{
+		return m_caseCount;
+	}
+
+	public void setCellCount(int caseIndex, long cellCount)
+	{
+		m_cellCounts[caseIndex] = cellCount;
+	}
+
+	public void setIterationsUsed(int caseIndex, int iterationsUsed)
+	{
+		m_iterationsUsed[caseIndex] = iterationsUsed;
+	}
+
+	public void setColdStartDelta(int caseIndex, int coldStartDelta)
+	{
+		m_coldStartDelta[caseIndex] = coldStartDelta;
+	}
+
+	public void setSolveSeconds(int caseIndex, double solveSeconds)
+	{
+		m_solveSeconds[caseIndex] = solveSeconds;
+	}
+
+	public void setMaxPressures(int caseIndex, double maxPressureLg, double maxPressureSm)
+	{
+		m_maxPressures[LARGE_CHANNEL][caseIndex] = maxPressureLg;
+		m_maxPressures[SMALL_CHANNEL][caseIndex] = maxPressureSm;
+		m_dropsValid[caseIndex] = false;
+		m_hasResults[caseIndex] = true;
+	}
+
+	public void setMinPressures(int caseIndex, double minPressureLg, double minPressureSm)
+	{
+		m_minPressures[LARGE_CHANNEL][caseIndex] = minPressureLg;
+		m_minPressures[SMALL_CHANNEL][caseIndex] = minPressureSm;
+		m_dropsValid[caseIndex] = false;
+		m_hasResults[caseIndex] = true;
+	}
+
+	/** This method copies the cell count and pressure results of a finished case into the store
+	 *
+	 * @param caseIndex the number of the case in the sweep
+	 * @param mED the case after SimRunner has stored its results
+	 */
+	public void record(int caseIndex, MeshElementData mED)
+	{
+		double[] max = mED.getMaxPressures();
+		double[] min = mED.getMinPressures();
+		setCellCount(caseIndex, mED.getCellCount());
+		setIterationsUsed(caseIndex, mED.getIterationsUsed());
+		setColdStartDelta(caseIndex, mED.getColdStartDelta());
+		setSolveSeconds(caseIndex, mED.getSolveSeconds());
+		setMaxPressures(caseIndex, max[LARGE_CHANNEL], max[SMALL_CHANNEL]);
+		setMinPressures(caseIndex, min[LARGE_CHANNEL], min[SMALL_CHANNEL]);
+	}
+
+	public long getCellCount(int caseIndex)
+	{
+		return m_cellCounts[caseIndex];
+	}
+
+	public int getIterationsUsed(int caseIndex)
+	{
+		return m_iterationsUsed[caseIndex];
+	}
+
+	// Returns the iterations fewer than the last cold start, see MeshElementData.setColdStartDelta
+	public int getColdStartDelta(int caseIndex)
+	{
+		return m_coldStartDelta[caseIndex];
+	}
+
+	public double getSolveSeconds(int caseIndex)
+	{
+		return m_solveSeconds[caseIndex];
+	}
+
+	public double getMaxPressure(int caseIndex, int channel)
+	{
+		return m_maxPressures[channel][caseIndex];
+	}
+
+	public double getMinPressure(int caseIndex, int channel)
+	{
+		return m_minPressures[channel][caseIndex];
+	}
+
+	public double getPressureDrop(int caseIndex, int channel)
+	{
+		if (!m_dropsValid[caseIndex])
+		{
+			updatePressureDrops(caseIndex);
+		}
+		return m_pressureDrops[channel][caseIndex];
+	}
+
+	public boolean hasResults(int caseIndex)
+	{
+		return m_hasResults[caseIndex];
+	}
+
+	/** This method returns the pressure drop of every case for one channel, only cases with results are meaningful
+	 *
+	 * @param channel LARGE_CHANNEL or SMALL_CHANNEL
+	 * @return the column of pressure drops
+	 */
+	public double[] getPressureDrops(int channel)
+	{
+		for (int i = 0; i < m_caseCount; i++)
+		{
+			if (!m_dropsValid[i])
+			{
+				updatePressureDrops(i);
+			}
+		}
+		return m_pressureDrops[channel];
+	}
+
+	/** This method writes every case with results to a comma separated file in one pass
+	 *
+	 * @param fileToWrite path of the output file
+	 */
+	public void exportCsv(String fileToWrite) throws IOException
+	{
+		BufferedWriter writer = new BufferedWriter(new FileWriter(fileToWrite));
+		try
+		{
+			writer.write("Case,CellCount,IterationsUsed,ColdStartDelta,SolveSeconds,MaxPressure_LargeCh,MinPressure_LargeCh,PressureDrop_LargeCh," +
+					"MaxPressure_SmallCh,MinPressure_SmallCh,PressureDrop_SmallCh");
+			writer.newLine();
+
+			StringBuilder line = new StringBuilder(160);
+			for (int i = 0; i < m_caseCount; i++)
+			{
+				if (!m_hasResults[i])
+				{
+					continue;
+				}
+				line.setLength(0);
+				line.append(i).append(',').append(m_cellCounts[i]).append(',').append(m_iterationsUsed[i]);
+				line.append(',').append(m_coldStartDelta[i]).append(',').append(m_solveSeconds[i]);
+				for (int channel = 0; channel < 2; channel++)
+				{
+					line.append(',').append(m_maxPressures[channel][i]);
+					line.append(',').append(m_minPressures[channel][i]);
+					line.append(',').append(getPressureDrop(i, channel));
+				}
+				writer.append(line);
+				writer.newLine();
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}// end method exportCsv
+
+	private void updatePressureDrops(int caseIndex)
+	{
+		for (int channel = 0; channel < 2; channel++)
+		{
+			m_pressureDrops[channel][caseIndex] = m_maxPressures[channel][caseIndex] - m_minPressures[channel][caseIndex];
+		}
+		m_dropsValid[caseIndex] = true;
+	}
+
+}// end class SweepResultStore
@@ -1,5 +1,8 @@
 package starClasses;
 
+import java.io.File;
+import java.io.IOException;
+
 import star.base.neo.NeoObjectVector;
 import star.common.Boundary;
 import star.common.PrimitiveFieldFunction;
@@ -10,22 +13,24 @@ import star.common.XyzInternalTable;
 public class Tools 
 {
 	private Simulation m_sim;
+	private FieldFunctionCache m_fieldFunctions;
 	private XyzInternalTable m_internalTable;
 	
 	public Tools(Simulation sim)
 	{
 		m_sim = sim;
+		m_fieldFunctions = FieldFunctionCache.forSimulation(sim);
 	}
 	
 	public void createXYZInternalTable(String regionName, String[] boundaryNames, String tableName)
 	{
 		m_internalTable = m_sim.getTableManager().createTable(XyzInternalTable.class);
 
-	    Region region = m_sim.getRegionManager().getRegion("Fluid");
+	    Region region = m_sim.getRegionManager().getRegion(regionName);
 	    
 	    for(int i = 0; i < boundaryNames.length; i++)
 	    {
-	    	Boundary boundary = region.getBoundaryManager().getBoundary("Fluid.FSI_Back");
+	    	Boundary boundary = region.getBoundaryManager().getBoundary(boundaryNames[i]);
 	    	m_internalTable.getParts().addObjects(boundary);
 	    }
 	    m_internalTable.setPresentationName(tableName);
@@ -34,7 +39,7 @@ public class Tools
 	public void setXYZInternalTableFieldFunction(String fieldFunctionName)
 	{
 		PrimitiveFieldFunction primitiveFieldFunction_1 = 
-				((PrimitiveFieldFunction) m_sim.getFieldFunctionManager().getFunction(fieldFunctionName));
+				m_fieldFunctions.getPrimitiveFunction(fieldFunctionName);
 		m_internalTable.setFieldFunctions(new NeoObjectVector(new Object[] {primitiveFieldFunction_1}));
 	}
 	
@@ -43,5 +48,77 @@ public class Tools
 		m_internalTable.extract();
 		m_internalTable.export(outputFileLocation, ",");
 	}
-}
+	
+	/** This method extracts the table and writes it in the binary column format of XyzBinaryTableWriter.
+	 * The table is exported to a temporary csv file next to the output, converted and the csv file deleted.
+	 * 
+	 * @param outputFileLocation path of the binary file, read it back with XyzBinaryTableReader
+	 * @return the number of rows written
+	 */
+	public long extractAndExportXYZInternalTableBinary(String outputFileLocation) throws IOException, InputFileException
+	{
+		m_internalTable.extract();
+		File csvFile = new File(outputFileLocation + ".csv.tmp");
+		try
+		{
+			m_internalTable.export(csvFile.getPath(), ",");
+			return XyzBinaryTableWriter.convert(csvFile.getPath(), outputFileLocation);
+		}
+		finally
+		{
+			csvFile.delete();
+		}
+	}
+	
+	/** This method extracts the table and appends its field values as one step of a time series.
+	 * The coordinates are only written with the first step of the series.
+	 * 
+	 * @param series the time series collecting every step of the run
+	 * @param step the time step or coupling step number
+	 * @param time the solution time of the step
+	 */
+	public void extractAndAppendXYZInternalTableStep(XyzTimeSeriesWriter series, long step, double time) 
+			throws IOException, InputFileException
+	{
+		m_internalTable.extract();
+		File csvFile = File.createTempFile("xyzTable", ".csv");
+		try
+		{
+			m_internalTable.export(csvFile.getPath(), ",");
+			series.appendStep(step, time, csvFile.getPath());
+		}
+		finally
+		{
+			csvFile.delete();
+		}
+	}
+	
+	/** This method extracts the table, exports it to a local staging file and hands it to a queue that
+	 * compresses and writes it in the background, so the solver can continue straight away
+	 * 
+	 * @param queue the queue writing the snapshots of the run
+	 * @param outputFileLocation path of the gzip compressed comma separated file
+	 */
+	public void extractAndQueueXYZInternalTableData(AsyncExportQueue queue, String outputFileLocation) 
+			throws IOException, InterruptedException
+	{
+		m_internalTable.extract();
+		File stagedFile = File.createTempFile("xyzTable", ".csv");
 
+		// Once queued the writer deletes the staged file, until then it is ours to clean up
+		boolean queued = false;
+		try
+		{
+			m_internalTable.export(stagedFile.getPath(), ",");
+			queue.submitFile(stagedFile.getPath(), outputFileLocation);
+			queued = true;
+		}
+		finally
+		{
+			if (!queued)
+			{
+				stagedFile.delete();
+			}
+		}
+	}
+}
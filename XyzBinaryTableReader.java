@@ -0,0 +1,152 @@
+package starClasses;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class reads the binary column files written by XyzBinaryTableWriter. Only the header is read
+ * when the file is opened, each column is memory mapped on its own when it is asked for, so loading
+ * the pressure of a table never pages in its coordinates.
+ *
+ * @author cj8q5
+ *
+ */
+public class XyzBinaryTableReader
+{
+	private String m_fileName;
+	private String[] m_names;
+	private long m_rowCount;
+	private int m_dataOffset;
+
+	public XyzBinaryTableReader(String fileToRead) throws IOException
+	{
+		m_fileName = fileToRead;
+		RandomAccessFile file = new RandomAccessFile(fileToRead, "r");
+		try
+		{
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(XyzBinaryTableWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header, 0);
+			if (header.getInt(0) != XyzBinaryTableWriter.MAGIC)
+			{
+				throw new IOException(fileToRead + " is not a binary table file");
+			}
+			if (header.getInt(4) != XyzBinaryTableWriter.VERSION)
+			{
+				throw new IOException(fileToRead + " has version " + header.getInt(4) + ", expected " + XyzBinaryTableWriter.VERSION);
+			}
+			int columnCount = header.getInt(8);
+			m_dataOffset = header.getInt(12);
+			m_rowCount = header.getLong(16);
+			if (channel.size() < XyzBinaryTableWriter.columnStart(m_dataOffset, m_rowCount, columnCount))
+			{
+				throw new IOException(fileToRead + " is shorter than its header says");
+			}
+
+			ByteBuffer names = ByteBuffer.allocate(m_dataOffset - XyzBinaryTableWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, names, XyzBinaryTableWriter.HEADER_SIZE);
+			m_names = new String[columnCount];
+			for (int i = 0; i < columnCount; i++)
+			{
+				byte[] name = new byte[names.getShort()];
+				names.get(name);
+				m_names[i] = new String(name, "UTF-8");
+			}
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+
+	public String[] getColumnNames()
+	{
+		return m_names.clone();
+	}
+
+	public int getColumnCount()
+	{
+		return m_names.length;
+	}
+
+	public long getRowCount()
+	{
+		return m_rowCount;
+	}
+
+	/** This method finds a column by its name in the table export, e.g. "X: Position[X] (m)"
+	 *
+	 * @param name the full column name
+	 * @return the index of the column
+	 */
+	public int getColumnIndex(String name)
+	{
+		for (int i = 0; i < m_names.length; i++)
+		{
+			if (m_names[i].equals(name))
+			{
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("The table " + m_fileName + " has no column " + name);
+	}
+
+	/** This method maps one column of the file without copying it
+	 *
+	 * @param column the index of the column
+	 * @return a read only view of the values, valid after the reader is gone
+	 */
+	public DoubleBuffer mapColumn(int column) throws IOException
+	{
+		if (column < 0 || column >= m_names.length)
+		{
+			throw new IndexOutOfBoundsException("Column " + column + " of " + m_names.length);
+		}
+		if (8L*m_rowCount > Integer.MAX_VALUE)
+		{
+			throw new IOException("Column " + m_names[column] + " of " + m_fileName + " is too large to map at once");
+		}
+		RandomAccessFile file = new RandomAccessFile(m_fileName, "r");
+		try
+		{
+			return file.getChannel().map(FileChannel.MapMode.READ_ONLY,
+					XyzBinaryTableWriter.columnStart(m_dataOffset, m_rowCount, column), 8L*m_rowCount)
+					.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+		}
+		finally
+		{
+			file.close();
+		}
+	}// end method mapColumn
+
+	// Loads one column into an array
+	public double[] readColumn(int column) throws IOException
+	{
+		DoubleBuffer values = mapColumn(column);
+		double[] result = new double[values.remaining()];
+		values.get(result);
+		return result;
+	}
+
+	public double[] readColumn(String name) throws IOException
+	{
+		return readColumn(getColumnIndex(name));
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, position + buffer.position()) < 0)
+			{
+				throw new IOException("Unexpected end of file");
+			}
+		}
+		buffer.flip();
+	}
+
+}// end class XyzBinaryTableReader
@@ -0,0 +1,156 @@
+package starClasses;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class converts an exported table into the binary column format read by XyzBinaryTableReader.
+ * All values are little-endian and each column is stored as one contiguous block of doubles, so a
+ * reader can load a single column without touching the others:
+ *
+ * header:  int magic, int version, int column count, int data offset, long row count, long unused
+ * names:   for each column a short byte length and the UTF-8 bytes of its name
+ * columns: padding up to the data offset, a multiple of 8, then the rows of column 0, column 1, ...
+ *
+ * The csv file is read twice, once to count the rows and once to parse them. Each column has a small
+ * buffer that is written to its block whenever it fills, so memory use does not grow with the table.
+ *
+ * @author cj8q5
+ *
+ */
+public class XyzBinaryTableWriter
+{
+	static final int MAGIC = 0x545A5958;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+
+	// Bytes buffered for each column between writes
+	private static final int COLUMN_BUFFER_SIZE = 1 << 15;
+
+	private XyzBinaryTableWriter()
+	{
+	}
+
+	/** This method converts a comma separated table export into a binary column file
+	 *
+	 * @param csvFile path of the file written by the table export
+	 * @param binaryFile path of the binary file to write
+	 * @return the number of rows written
+	 * @throws InputFileException if the csv file is malformed
+	 */
+	public static long convert(String csvFile, String binaryFile) throws IOException, InputFileException
+	{
+		// First pass, the row count fixes where each column block starts
+		XyzCsvReader counter = new XyzCsvReader(csvFile);
+		String[] names;
+		long rowCount = 0;
+		try
+		{
+			names = counter.readHeader();
+			while (counter.skipRow())
+			{
+				rowCount++;
+			}
+		}
+		finally
+		{
+			counter.close();
+		}
+
+		RandomAccessFile file = new RandomAccessFile(binaryFile, "rw");
+		XyzCsvReader reader = new XyzCsvReader(csvFile);
+		try
+		{
+			file.setLength(0);
+			FileChannel channel = file.getChannel();
+			int dataOffset = writeHeader(channel, names, rowCount);
+
+			// Second pass, rows are split into the column buffers
+			reader.readHeader();
+			ByteBuffer[] columns = new ByteBuffer[names.length];
+			long[] written = new long[names.length];
+			for (int column = 0; column < names.length; column++)
+			{
+				columns[column] = ByteBuffer.allocate(COLUMN_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			}
+			double[] row = new double[names.length];
+			long rowsRead = 0;
+			while (rowsRead < rowCount && reader.readRow(row))
+			{
+				for (int column = 0; column < names.length; column++)
+				{
+					if (!columns[column].hasRemaining())
+					{
+						written[column] += flushColumn(channel, columns[column], columnStart(dataOffset, rowCount, column) + written[column]);
+					}
+					columns[column].putDouble(row[column]);
+				}
+				rowsRead++;
+			}
+			for (int column = 0; column < names.length; column++)
+			{
+				flushColumn(channel, columns[column], columnStart(dataOffset, rowCount, column) + written[column]);
+			}
+			if (rowsRead != rowCount)
+			{
+				throw new IOException(csvFile + " changed while it was converted");
+			}
+			file.setLength(columnStart(dataOffset, rowCount, names.length));
+		}
+		finally
+		{
+			reader.close();
+			file.close();
+		}
+		return rowCount;
+	}// end method convert
+
+	static long columnStart(int dataOffset, long rowCount, int column)
+	{
+		return dataOffset + 8L*rowCount*column;
+	}
+
+	// Writes the header and the column names and returns the offset of the first column
+	private static int writeHeader(FileChannel channel, String[] names, long rowCount) throws IOException
+	{
+		byte[][] encodedNames = new byte[names.length][];
+		int namesSize = 0;
+		for (int i = 0; i < names.length; i++)
+		{
+			encodedNames[i] = names[i].getBytes("UTF-8");
+			if (encodedNames[i].length > Short.MAX_VALUE)
+			{
+				throw new IllegalArgumentException("The column name " + names[i] + " is too long");
+			}
+			namesSize += 2 + encodedNames[i].length;
+		}
+		int dataOffset = (HEADER_SIZE + namesSize + 7) & ~7;
+
+		ByteBuffer header = ByteBuffer.allocate(dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(names.length).putInt(dataOffset).putLong(rowCount).putLong(0);
+		for (byte[] name : encodedNames)
+		{
+			header.putShort((short) name.length).put(name);
+		}
+		header.position(0);
+		channel.write(header, 0);
+		return dataOffset;
+	}// end method writeHeader
+
+	// Writes the buffered values of a column at the given file position and returns the bytes written
+	private static int flushColumn(FileChannel channel, ByteBuffer column, long position) throws IOException
+	{
+		column.flip();
+		int bytes = column.remaining();
+		while (column.hasRemaining())
+		{
+			channel.write(column, position + bytes - column.remaining());
+		}
+		column.clear();
+		return bytes;
+	}
+
+}// end class XyzBinaryTableWriter
@@ -0,0 +1,310 @@
+package starClasses;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class streams the comma separated files StarCCM+ writes when a table is exported. The first
+ * line holds the quoted column names and every following line one row of numbers. The bytes are read
+ * in blocks and the numbers are parsed in place with ByteNumberParser, so no String is created per
+ * value and only one block of the file is held in memory at a time.
+ *
+ * @author cj8q5
+ *
+ */
+public class XyzCsvReader
+{
+	private static final int BLOCK_SIZE = 1 << 16;
+
+	private String m_fileName;
+	private InputStream m_input;
+	private ByteBuffer m_buffer = ByteBuffer.allocate(BLOCK_SIZE);
+	private boolean m_endOfInput = false;
+	private int m_lineNumber = 0;
+	private int m_columnCount = -1;
+
+	public XyzCsvReader(String fileToRead) throws IOException
+	{
+		m_fileName = fileToRead;
+		m_input = new FileInputStream(fileToRead);
+		m_buffer.limit(0);
+	}
+
+	/** This method reads the column names from the first line of the file
+	 *
+	 * @return the names with quotes and surrounding whitespace removed
+	 */
+	public String[] readHeader() throws IOException, InputFileException
+	{
+		if (m_lineNumber != 0)
+		{
+			throw new IllegalStateException("The header of " + m_fileName + " has already been read");
+		}
+		int end = nextLineEnd();
+		if (end < 0)
+		{
+			throw new InputFileException(m_fileName, 1, 0, "The file is empty", null);
+		}
+		String line = new String(m_buffer.array(), m_buffer.position(), end - m_buffer.position(), "UTF-8");
+		finishLine(end);
+		String[] names = splitHeader(line);
+		m_columnCount = names.length;
+		return names;
+	}
+
+	/** This method splits a header line into column names, commas inside quotes do not split
+	 *
+	 * @param line the header line without its line break
+	 * @return the names with quotes and surrounding whitespace removed
+	 */
+	public static String[] splitHeader(String line)
+	{
+		List<String> names = new ArrayList<String>();
+		StringBuilder name = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++)
+		{
+			char c = line.charAt(i);
+			if (c == '"')
+			{
+				quoted = !quoted;
+			}
+			else if (c == ',' && !quoted)
+			{
+				names.add(name.toString().trim());
+				name.setLength(0);
+			}
+			else
+			{
+				name.append(c);
+			}
+		}
+		names.add(name.toString().trim());
+		return names.toArray(new String[names.size()]);
+	}// end method splitHeader
+
+	/** This method reads the next row of numbers, blank lines are skipped
+	 *
+	 * @param values receives one value per column, at least as long as the header
+	 * @return false once the end of the file is reached
+	 * @throws InputFileException if a row does not have one number per column
+	 */
+	public boolean readRow(double[] values) throws IOException, InputFileException
+	{
+		if (m_columnCount < 0)
+		{
+			throw new IllegalStateException("Read the header of " + m_fileName + " before its rows");
+		}
+		while (true)
+		{
+			int end = nextLineEnd();
+			if (end < 0)
+			{
+				return false;
+			}
+			int start = m_buffer.position();
+			if (isBlank(m_buffer, start, end))
+			{
+				finishLine(end);
+				continue;
+			}
+			parseRow(m_buffer, start, end, values, m_columnCount, m_fileName, m_lineNumber + 1);
+			finishLine(end);
+			return true;
+		}
+	}// end method readRow
+
+	/** This method moves past the next row without parsing it, for counting the rows of a file
+	 *
+	 * @return false once the end of the file is reached
+	 */
+	public boolean skipRow() throws IOException
+	{
+		while (true)
+		{
+			int end = nextLineEnd();
+			if (end < 0)
+			{
+				return false;
+			}
+			boolean blank = isBlank(m_buffer, m_buffer.position(), end);
+			finishLine(end);
+			if (!blank)
+			{
+				return true;
+			}
+		}
+	}
+
+	/** This method parses the comma separated numbers of one line
+	 *
+	 * @param buffer the buffer holding the line
+	 * @param start index of the first byte of the line
+	 * @param end index of the line break, or one past the last byte of the line
+	 * @param values receives the values
+	 * @param columnCount the number of values the line must have
+	 * @param fileName the file reported in an exception
+	 * @param lineNumber the line reported in an exception, starting at 1
+	 * @throws InputFileException if the line does not have columnCount numbers
+	 */
+	static void parseRow(ByteBuffer buffer, int start, int end, double[] values, int columnCount, String fileName, int lineNumber)
+			throws InputFileException
+	{
+		int column = 0;
+		int fieldStart = start;
+		for (int i = start; i <= end; i++)
+		{
+			if (i == end || buffer.get(i) == ',')
+			{
+				if (column == columnCount)
+				{
+					throw new InputFileException(fileName, lineNumber, fieldStart - start + 1,
+							"The row has more than the " + columnCount + " columns of the header", null);
+				}
+				try
+				{
+					values[column++] = ByteNumberParser.parseDouble(buffer, fieldStart, i);
+				}
+				catch (NumberFormatException e)
+				{
+					throw new InputFileException(fileName, lineNumber, fieldStart - start + 1, e.getMessage(), e);
+				}
+				fieldStart = i + 1;
+			}
+		}
+		if (column != columnCount)
+		{
+			throw new InputFileException(fileName, lineNumber, 0,
+					"The row has " + column + " columns but the header has " + columnCount, null);
+		}
+	}// end method parseRow
+
+	/** This method reads a whole table export into memory as one array per column
+	 *
+	 * @param fileToRead path of the comma separated file
+	 * @return the columns with the names of the header
+	 */
+	public static XyzTableColumns readColumns(String fileToRead) throws IOException, InputFileException
+	{
+		XyzCsvReader reader = new XyzCsvReader(fileToRead);
+		try
+		{
+			String[] names = reader.readHeader();
+			double[][] columns = new double[names.length][1024];
+			double[] row = new double[names.length];
+			int rowCount = 0;
+			while (reader.readRow(row))
+			{
+				if (rowCount == columns[0].length)
+				{
+					for (int column = 0; column < names.length; column++)
+					{
+						columns[column] = Arrays.copyOf(columns[column], rowCount*2);
+					}
+				}
+				for (int column = 0; column < names.length; column++)
+				{
+					columns[column][rowCount] = row[column];
+				}
+				rowCount++;
+			}
+			for (int column = 0; column < names.length; column++)
+			{
+				columns[column] = Arrays.copyOf(columns[column], rowCount);
+			}
+			return new XyzTableColumns(names, columns);
+		}
+		finally
+		{
+			reader.close();
+		}
+	}// end method readColumns
+
+	public int getColumnCount()
+	{
+		return m_columnCount;
+	}
+
+	// Returns the number of lines read so far, including the header
+	public int getLineNumber()
+	{
+		return m_lineNumber;
+	}
+
+	public void close() throws IOException
+	{
+		m_input.close();
+	}
+
+	/** This method finds the end of the line starting at the buffer position, reading more of the file as needed
+	 *
+	 * @return the index of the line break, or of the end of the data for a last line without one, or -1 at the end of the file
+	 */
+	private int nextLineEnd() throws IOException
+	{
+		int searched = m_buffer.position();
+		while (true)
+		{
+			for (int i = searched; i < m_buffer.limit(); i++)
+			{
+				if (m_buffer.get(i) == '\n')
+				{
+					return i;
+				}
+			}
+			if (m_endOfInput)
+			{
+				return (m_buffer.position() < m_buffer.limit()) ? m_buffer.limit() : -1;
+			}
+			searched = m_buffer.limit() - m_buffer.position();
+			fill();
+		}
+	}// end method nextLineEnd
+
+	// Moves the unread bytes to the start of the buffer, growing it for long lines, and reads the next block
+	private void fill() throws IOException
+	{
+		m_buffer.compact();
+		if (!m_buffer.hasRemaining())
+		{
+			ByteBuffer larger = ByteBuffer.allocate(m_buffer.capacity()*2);
+			m_buffer.flip();
+			larger.put(m_buffer);
+			m_buffer = larger;
+		}
+		int read = m_input.read(m_buffer.array(), m_buffer.position(), m_buffer.remaining());
+		if (read < 0)
+		{
+			m_endOfInput = true;
+		}
+		else
+		{
+			m_buffer.position(m_buffer.position() + read);
+		}
+		m_buffer.flip();
+	}
+
+	private void finishLine(int end)
+	{
+		m_buffer.position(Math.min(end + 1, m_buffer.limit()));
+		m_lineNumber++;
+	}
+
+	static boolean isBlank(ByteBuffer buffer, int start, int end)
+	{
+		for (int i = start; i < end; i++)
+		{
+			if (!ByteNumberParser.isWhitespace(buffer.get(i)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+}// end class XyzCsvReader
@@ -0,0 +1,194 @@
+package starClasses;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import star.base.neo.NeoObjectVector;
+import star.common.Boundary;
+import star.common.FieldFunction;
+import star.common.Region;
+import star.common.Simulation;
+import star.common.XyzInternalTable;
+
+/**
+ * This class builds one XYZ internal table over any number of region and boundary pairs and any
+ * number of field functions. The regions, boundaries and field functions are looked up once when
+ * they are added and set on the table once when it is built, so every time step needs a single
+ * extract and a single export no matter how many surfaces and fields are written.
+ *
+ * Usage:
+ *
+ *     XyzTableBuilder builder = new XyzTableBuilder(sim, "FSI_Walls");
+ *     builder.addBoundaries("Fluid", new String[] {"Fluid.FSI_Back", "Fluid.FSI_Front"});
+ *     builder.addFieldFunctions(new String[] {"StaticPressure", "WallShearStress"});
+ *     builder.build();
+ *     builder.extractAndExportStep(outputDirectory, timeStep);
+ *
+ * @author cj8q5
+ *
+ */
+public class XyzTableBuilder
+{
+	private Simulation m_sim;
+	private FieldFunctionCache m_fieldFunctionCache;
+	private String m_tableName;
+	private XyzInternalTable m_table = null;
+	private Map<String, Region> m_regions = new HashMap<String, Region>();
+	private List<Boundary> m_boundaries = new ArrayList<Boundary>();
+	private List<FieldFunction> m_fieldFunctions = new ArrayList<FieldFunction>();
+
+	public XyzTableBuilder(Simulation sim, String tableName)
+	{
+		m_sim = sim;
+		m_fieldFunctionCache = FieldFunctionCache.forSimulation(sim);
+		m_tableName = tableName;
+	}
+
+	/** This method adds one boundary of a region to the table
+	 *
+	 * @param regionName the name of the region, e.g. "Fluid"
+	 * @param boundaryName the full name of the boundary, e.g. "Fluid.FSI_Back"
+	 */
+	public void addBoundary(String regionName, String boundaryName)
+	{
+		checkNotBuilt();
+		Region region = m_regions.get(regionName);
+		if (region == null)
+		{
+			region = m_sim.getRegionManager().getRegion(regionName);
+			m_regions.put(regionName, region);
+		}
+		Boundary boundary = region.getBoundaryManager().getBoundary(boundaryName);
+		if (!m_boundaries.contains(boundary))
+		{
+			m_boundaries.add(boundary);
+		}
+	}
+
+	public void addBoundaries(String regionName, String[] boundaryNames)
+	{
+		for (int i = 0; i < boundaryNames.length; i++)
+		{
+			addBoundary(regionName, boundaryNames[i]);
+		}
+	}
+
+	/** This method adds a field function, each becomes one or more columns of the table
+	 *
+	 * @param fieldFunctionName the name of the field function, e.g. "StaticPressure"
+	 */
+	public void addFieldFunction(String fieldFunctionName)
+	{
+		checkNotBuilt();
+		FieldFunction fieldFunction = m_fieldFunctionCache.getFunction(fieldFunctionName);
+		if (!m_fieldFunctions.contains(fieldFunction))
+		{
+			m_fieldFunctions.add(fieldFunction);
+		}
+	}
+
+	public void addFieldFunctions(String[] fieldFunctionNames)
+	{
+		for (int i = 0; i < fieldFunctionNames.length; i++)
+		{
+			addFieldFunction(fieldFunctionNames[i]);
+		}
+	}
+
+	/** This method creates the table and sets all of its parts and field functions in one call each
+	 *
+	 * @return the table, for settings the builder does not cover
+	 */
+	public XyzInternalTable build()
+	{
+		checkNotBuilt();
+		if (m_boundaries.isEmpty() || m_fieldFunctions.isEmpty())
+		{
+			throw new IllegalStateException("The table " + m_tableName + " needs at least one boundary and one field function");
+		}
+		m_table = m_sim.getTableManager().createTable(XyzInternalTable.class);
+		m_table.setPresentationName(m_tableName);
+		m_table.getParts().addObjects(m_boundaries.toArray());
+		m_table.setFieldFunctions(new NeoObjectVector(m_fieldFunctions.toArray()));
+		return m_table;
+	}// end method build
+
+	// Extracts every field on every boundary and exports them to one comma separated file
+	public void extractAndExport(String outputFileLocation)
+	{
+		checkBuilt();
+		m_table.extract();
+		m_table.export(outputFileLocation, ",");
+	}
+
+	/** This method extracts every field on every boundary and exports them to one binary column file
+	 *
+	 * @param outputFileLocation path of the binary file, read it back with XyzBinaryTableReader
+	 * @return the number of rows written
+	 */
+	public long extractAndExportBinary(String outputFileLocation) throws IOException, InputFileException
+	{
+		checkBuilt();
+		m_table.extract();
+		File csvFile = new File(outputFileLocation + ".csv.tmp");
+		try
+		{
+			m_table.export(csvFile.getPath(), ",");
+			return XyzBinaryTableWriter.convert(csvFile.getPath(), outputFileLocation);
+		}
+		finally
+		{
+			csvFile.delete();
+		}
+	}
+
+	/** This method writes the table of one time step to its own file in a directory
+	 *
+	 * @param outputDirectory the directory receiving one file per step
+	 * @param step the number of the time step, part of the file name
+	 * @return the path of the file written
+	 */
+	public String extractAndExportStep(String outputDirectory, int step)
+	{
+		String file = new File(outputDirectory, m_tableName + "_" + step + ".csv").getPath();
+		extractAndExport(file);
+		return file;
+	}
+
+	public XyzInternalTable getTable()
+	{
+		checkBuilt();
+		return m_table;
+	}
+
+	public int getBoundaryCount()
+	{
+		return m_boundaries.size();
+	}
+
+	public int getFieldFunctionCount()
+	{
+		return m_fieldFunctions.size();
+	}
+
+	private void checkBuilt()
+	{
+		if (m_table == null)
+		{
+			throw new IllegalStateException("Build the table " + m_tableName + " before extracting it");
+		}
+	}
+
+	private void checkNotBuilt()
+	{
+		if (m_table != null)
+		{
+			throw new IllegalStateException("The table " + m_tableName + " has already been built");
+		}
+	}
+
+}// end class XyzTableBuilder
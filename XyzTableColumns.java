@@ -0,0 +1,99 @@
+package starClasses;
+
+import java.util.Arrays;
+
+/**
+ * This class holds an exported table in memory as one double array per column. The column names
+ * are the names of the table export, e.g. "X (m)" or "StaticPressure (Pa)".
+ *
+ * @author cj8q5
+ *
+ */
+public class XyzTableColumns
+{
+	private String[] m_names;
+	private double[][] m_columns;
+	private int m_rowCount;
+
+	/**
+	 * @param names the name of each column
+	 * @param columns the values of each column, all of the same length
+	 */
+	public XyzTableColumns(String[] names, double[][] columns)
+	{
+		if (names.length != columns.length)
+		{
+			throw new IllegalArgumentException(names.length + " names for " + columns.length + " columns");
+		}
+		m_rowCount = (columns.length == 0) ? 0 : columns[0].length;
+		for (int i = 0; i < columns.length; i++)
+		{
+			if (columns[i].length != m_rowCount)
+			{
+				throw new IllegalArgumentException("Column " + names[i] + " has " + columns[i].length + " rows, expected " + m_rowCount);
+			}
+		}
+		m_names = names;
+		m_columns = columns;
+	}
+
+	public int getColumnCount()
+	{
+		return m_names.length;
+	}
+
+	public int getRowCount()
+	{
+		return m_rowCount;
+	}
+
+	public String getName(int column)
+	{
+		return m_names[column];
+	}
+
+	public String[] getNames()
+	{
+		return m_names.clone();
+	}
+
+	// Returns the values of a column, the array is not copied
+	public double[] getColumn(int column)
+	{
+		return m_columns[column];
+	}
+
+	public double[] getColumn(String name)
+	{
+		return m_columns[getColumnIndex(name)];
+	}
+
+	public int getColumnIndex(String name)
+	{
+		for (int i = 0; i < m_names.length; i++)
+		{
+			if (m_names[i].equals(name))
+			{
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("The table has no column " + name + ", its columns are " + Arrays.toString(m_names));
+	}
+
+	/** This method tells whether a column holds a coordinate, its name is X, Y or Z on its own or
+	 * followed by a space, a colon or an opening bracket, as in "X (m)" or "X: Position[X] (m)"
+	 *
+	 * @param name the column name
+	 * @return true for a coordinate column
+	 */
+	public static boolean isCoordinateColumn(String name)
+	{
+		String trimmed = name.trim();
+		if (trimmed.isEmpty() || "XYZ".indexOf(trimmed.charAt(0)) < 0)
+		{
+			return false;
+		}
+		return trimmed.length() == 1 || " :([".indexOf(trimmed.charAt(1)) >= 0;
+	}
+
+}// end class XyzTableColumns
@@ -0,0 +1,220 @@
+package starClasses;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class reads the time series files written by XyzTimeSeriesWriter. The index is loaded when
+ * the file is opened, after that any column of any step is memory mapped on its own without reading
+ * the steps before it.
+ *
+ * @author cj8q5
+ *
+ */
+public class XyzTimeSeriesReader
+{
+	private String m_fileName;
+	private String[] m_coordinateNames;
+	private String[] m_valueNames;
+	private long m_rowCount;
+	private long m_dataOffset;
+	private long[] m_steps;
+	private double[] m_times;
+	private long[] m_offsets;
+
+	public XyzTimeSeriesReader(String fileToRead) throws IOException
+	{
+		m_fileName = fileToRead;
+		RandomAccessFile dataFile = new RandomAccessFile(fileToRead, "r");
+		RandomAccessFile indexFile = new RandomAccessFile(XyzTimeSeriesWriter.getIndexFile(fileToRead), "r");
+		try
+		{
+			FileChannel data = dataFile.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(XyzTimeSeriesWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(data, header, 0, fileToRead);
+			if (header.getInt(0) != XyzTimeSeriesWriter.MAGIC || header.getInt(4) != XyzTimeSeriesWriter.VERSION)
+			{
+				throw new IOException(fileToRead + " is not a version " + XyzTimeSeriesWriter.VERSION + " time series file");
+			}
+			int coordinateCount = header.getInt(8);
+			int valueCount = header.getInt(12);
+			m_rowCount = header.getLong(16);
+			m_dataOffset = header.getLong(24);
+			ByteBuffer names = ByteBuffer.allocate((int) m_dataOffset - XyzTimeSeriesWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(data, names, XyzTimeSeriesWriter.HEADER_SIZE, fileToRead);
+			m_coordinateNames = readNames(names, coordinateCount);
+			m_valueNames = readNames(names, valueCount);
+
+			FileChannel index = indexFile.getChannel();
+			ByteBuffer records = ByteBuffer.allocate((int) index.size()).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(index, records, 0, fileToRead);
+			if (records.remaining() < XyzTimeSeriesWriter.INDEX_HEADER_SIZE || records.getInt(0) != XyzTimeSeriesWriter.INDEX_MAGIC)
+			{
+				throw new IOException(XyzTimeSeriesWriter.getIndexFile(fileToRead) + " is not a time series index");
+			}
+			int stepCount = (records.remaining() - XyzTimeSeriesWriter.INDEX_HEADER_SIZE)/XyzTimeSeriesWriter.INDEX_RECORD_SIZE;
+			m_steps = new long[stepCount];
+			m_times = new double[stepCount];
+			m_offsets = new long[stepCount];
+			records.position(XyzTimeSeriesWriter.INDEX_HEADER_SIZE);
+			for (int i = 0; i < stepCount; i++)
+			{
+				m_steps[i] = records.getLong();
+				m_times[i] = records.getDouble();
+				m_offsets[i] = records.getLong();
+			}
+			if (stepCount > 0 && data.size() < m_offsets[stepCount - 1] + 8L*m_rowCount*valueCount)
+			{
+				throw new IOException(fileToRead + " is shorter than its index says");
+			}
+		}
+		finally
+		{
+			dataFile.close();
+			indexFile.close();
+		}
+	}
+
+	public int getStepCount()
+	{
+		return m_steps.length;
+	}
+
+	public long getRowCount()
+	{
+		return m_rowCount;
+	}
+
+	// Returns the step number of the step at an index, the indices run from 0 in the order the steps were written
+	public long getStep(int stepIndex)
+	{
+		return m_steps[stepIndex];
+	}
+
+	public double getTime(int stepIndex)
+	{
+		return m_times[stepIndex];
+	}
+
+	/** This method finds the index of a step number
+	 *
+	 * @param step the step number given when the step was appended
+	 * @return the index of the step, or -1 if it is not in the series
+	 */
+	public int findStep(long step)
+	{
+		int low = 0;
+		int high = m_steps.length - 1;
+		while (low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			if (m_steps[middle] < step)
+			{
+				low = middle + 1;
+			}
+			else if (m_steps[middle] > step)
+			{
+				high = middle - 1;
+			}
+			else
+			{
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	public String[] getCoordinateNames()
+	{
+		return m_coordinateNames.clone();
+	}
+
+	public String[] getValueNames()
+	{
+		return m_valueNames.clone();
+	}
+
+	public int getValueColumnIndex(String name)
+	{
+		for (int i = 0; i < m_valueNames.length; i++)
+		{
+			if (m_valueNames[i].equals(name))
+			{
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("The series " + m_fileName + " has no value column " + name);
+	}
+
+	// Loads one coordinate column, written once for the whole series
+	public double[] readCoordinates(int column) throws IOException
+	{
+		checkColumn(column, m_coordinateNames.length);
+		return read(m_dataOffset + 8L*m_rowCount*column);
+	}
+
+	/** This method loads one value column of one step
+	 *
+	 * @param stepIndex the index of the step, see findStep
+	 * @param column the index of the value column
+	 */
+	public double[] readValues(int stepIndex, int column) throws IOException
+	{
+		checkColumn(column, m_valueNames.length);
+		return read(m_offsets[stepIndex] + 8L*m_rowCount*column);
+	}
+
+	private double[] read(long offset) throws IOException
+	{
+		double[] values = new double[(int) m_rowCount];
+		RandomAccessFile file = new RandomAccessFile(m_fileName, "r");
+		try
+		{
+			DoubleBuffer mapped = file.getChannel().map(FileChannel.MapMode.READ_ONLY, offset, 8L*m_rowCount)
+					.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+			mapped.get(values);
+		}
+		finally
+		{
+			file.close();
+		}
+		return values;
+	}
+
+	private void checkColumn(int column, int columnCount)
+	{
+		if (column < 0 || column >= columnCount)
+		{
+			throw new IndexOutOfBoundsException("Column " + column + " of " + columnCount);
+		}
+	}
+
+	static String[] readNames(ByteBuffer buffer, int count) throws IOException
+	{
+		String[] names = new String[count];
+		for (int i = 0; i < count; i++)
+		{
+			byte[] name = new byte[buffer.getShort()];
+			buffer.get(name);
+			names[i] = new String(name, "UTF-8");
+		}
+		return names;
+	}
+
+	static void readFully(FileChannel channel, ByteBuffer buffer, long position, String fileName) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, position + buffer.position()) < 0)
+			{
+				throw new IOException("Unexpected end of " + fileName);
+			}
+		}
+		buffer.flip();
+	}
+
+}// end class XyzTimeSeriesReader
@@ -0,0 +1,295 @@
+package starClasses;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class collects the tables of a transient run in one growing file. The coordinate columns of
+ * the first step are written once and every step after that only appends its field values, with one
+ * fixed size record per step in an index file next to it, so any step can be found without reading
+ * the steps before it. Both files are little-endian:
+ *
+ * data file:  int magic, int version, int coordinate column count, int value column count,
+ *             long row count, long data offset,
+ *             for each coordinate and then each value column a short byte length and the UTF-8 name,
+ *             padding up to the data offset, a multiple of 8,
+ *             the coordinate columns one after the other,
+ *             for each step the value columns one after the other
+ * index file: int magic, int version, long unused,
+ *             for each step long step number, double solution time, long offset of its values
+ *
+ * The coordinates are those of the first step, a morphing mesh has to export them as value
+ * columns under another name. Opening an existing file continues it after its last indexed step.
+ *
+ * @author cj8q5
+ *
+ */
+public class XyzTimeSeriesWriter
+{
+	static final int MAGIC = 0x53545958;
+	static final int INDEX_MAGIC = 0x49545958;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final int INDEX_HEADER_SIZE = 16;
+	static final int INDEX_RECORD_SIZE = 24;
+
+	// Bytes converted at a time when a column is written
+	private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+	private String m_fileName;
+	private RandomAccessFile m_dataFile;
+	private RandomAccessFile m_indexFile;
+	private FileChannel m_data;
+	private FileChannel m_index;
+	private ByteBuffer m_buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	private ByteBuffer m_indexRecord = ByteBuffer.allocate(INDEX_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+	// Layout fixed by the first step
+	private String[] m_coordinateNames = null;
+	private String[] m_valueNames = null;
+	private long m_rowCount;
+	private long m_stepCount = 0;
+	private long m_lastStep = Long.MIN_VALUE;
+	private long m_endOfData;
+
+	/**
+	 * @param fileToWrite path of the data file, the index is written to the same path with .idx appended
+	 */
+	public XyzTimeSeriesWriter(String fileToWrite) throws IOException
+	{
+		m_fileName = fileToWrite;
+		boolean existing = new File(fileToWrite).length() > 0;
+		m_dataFile = new RandomAccessFile(fileToWrite, "rw");
+		m_indexFile = new RandomAccessFile(getIndexFile(fileToWrite), "rw");
+		m_data = m_dataFile.getChannel();
+		m_index = m_indexFile.getChannel();
+		if (existing)
+		{
+			reopen();
+		}
+		else
+		{
+			m_indexFile.setLength(0);
+		}
+	}
+
+	// Returns the path of the index file belonging to a data file
+	public static String getIndexFile(String dataFile)
+	{
+		return dataFile + ".idx";
+	}
+
+	/** This method appends one step of a table export
+	 *
+	 * @param step the time step or coupling step number, larger than the last appended step
+	 * @param time the solution time of the step
+	 * @param csvFile path of the comma separated table export of the step
+	 */
+	public void appendStep(long step, double time, String csvFile) throws IOException, InputFileException
+	{
+		appendStep(step, time, XyzCsvReader.readColumns(csvFile));
+	}
+
+	/** This method appends one step, the first step also writes the coordinates
+	 *
+	 * @param step the time step or coupling step number, larger than the last appended step
+	 * @param time the solution time of the step
+	 * @param table the table of the step, with the same columns and rows as the first step
+	 */
+	public void appendStep(long step, double time, XyzTableColumns table) throws IOException
+	{
+		if (step <= m_lastStep)
+		{
+			throw new IllegalArgumentException("Step " + step + " does not come after step " + m_lastStep);
+		}
+		List<Integer> coordinates = new ArrayList<Integer>();
+		List<Integer> values = new ArrayList<Integer>();
+		for (int i = 0; i < table.getColumnCount(); i++)
+		{
+			(XyzTableColumns.isCoordinateColumn(table.getName(i)) ? coordinates : values).add(i);
+		}
+		if (m_valueNames == null)
+		{
+			writeHeader(table, coordinates, values);
+			for (int column : coordinates)
+			{
+				writeColumn(table.getColumn(column));
+			}
+		}
+		else
+		{
+			checkLayout(table, values);
+		}
+
+		long offset = m_endOfData;
+		for (int column : values)
+		{
+			writeColumn(table.getColumn(column));
+		}
+
+		// The index record is written last, a step without one is dropped when the file is reopened
+		m_indexRecord.clear();
+		m_indexRecord.putLong(step).putDouble(time).putLong(offset).flip();
+		writeFully(m_index, m_indexRecord, INDEX_HEADER_SIZE + m_stepCount*INDEX_RECORD_SIZE);
+		m_stepCount++;
+		m_lastStep = step;
+	}// end method appendStep
+
+	public long getStepCount()
+	{
+		return m_stepCount;
+	}
+
+	// Forces both files to disk, e.g. after each coupling step of a long run
+	public void flush() throws IOException
+	{
+		m_data.force(false);
+		m_index.force(false);
+	}
+
+	public void close() throws IOException
+	{
+		try
+		{
+			m_dataFile.close();
+		}
+		finally
+		{
+			m_indexFile.close();
+		}
+	}
+
+	private void writeHeader(XyzTableColumns table, List<Integer> coordinates, List<Integer> values) throws IOException
+	{
+		m_rowCount = table.getRowCount();
+		m_coordinateNames = new String[coordinates.size()];
+		m_valueNames = new String[values.size()];
+		List<byte[]> encodedNames = new ArrayList<byte[]>();
+		int namesSize = 0;
+		for (int i = 0; i < coordinates.size(); i++)
+		{
+			m_coordinateNames[i] = table.getName(coordinates.get(i));
+			encodedNames.add(m_coordinateNames[i].getBytes("UTF-8"));
+		}
+		for (int i = 0; i < values.size(); i++)
+		{
+			m_valueNames[i] = table.getName(values.get(i));
+			encodedNames.add(m_valueNames[i].getBytes("UTF-8"));
+		}
+		for (byte[] name : encodedNames)
+		{
+			namesSize += 2 + name.length;
+		}
+		int dataOffset = (HEADER_SIZE + namesSize + 7) & ~7;
+
+		ByteBuffer header = ByteBuffer.allocate(dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(m_coordinateNames.length).putInt(m_valueNames.length);
+		header.putLong(m_rowCount).putLong(dataOffset);
+		for (byte[] name : encodedNames)
+		{
+			header.putShort((short) name.length).put(name);
+		}
+		header.position(0);
+		m_dataFile.setLength(0);
+		writeFully(m_data, header, 0);
+		m_endOfData = dataOffset;
+
+		m_indexFile.setLength(0);
+		writeIndexHeader();
+	}// end method writeHeader
+
+	private void writeIndexHeader() throws IOException
+	{
+		ByteBuffer indexHeader = ByteBuffer.allocate(INDEX_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		indexHeader.putInt(INDEX_MAGIC).putInt(VERSION).putLong(0).flip();
+		writeFully(m_index, indexHeader, 0);
+	}
+
+	private void checkLayout(XyzTableColumns table, List<Integer> values)
+	{
+		if (table.getRowCount() != m_rowCount)
+		{
+			throw new IllegalArgumentException("The table has " + table.getRowCount() + " rows but the series has " + m_rowCount);
+		}
+		if (values.size() != m_valueNames.length)
+		{
+			throw new IllegalArgumentException("The table has " + values.size() + " value columns but the series has " + m_valueNames.length);
+		}
+		for (int i = 0; i < values.size(); i++)
+		{
+			if (!table.getName(values.get(i)).equals(m_valueNames[i]))
+			{
+				throw new IllegalArgumentException("Value column " + i + " is " + table.getName(values.get(i)) + " but the series has " + m_valueNames[i]);
+			}
+		}
+	}
+
+	private void writeColumn(double[] column) throws IOException
+	{
+		int i = 0;
+		while (i < m_rowCount)
+		{
+			m_buffer.clear();
+			while (i < m_rowCount && m_buffer.hasRemaining())
+			{
+				m_buffer.putDouble(column[i++]);
+			}
+			m_buffer.flip();
+			m_endOfData += writeFully(m_data, m_buffer, m_endOfData);
+		}
+	}
+
+	// Reads the layout of an existing series and drops anything written after its last indexed step
+	private void reopen() throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		XyzTimeSeriesReader.readFully(m_data, header, 0, m_fileName);
+		if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+		{
+			throw new IOException(m_fileName + " is not a version " + VERSION + " time series file");
+		}
+		int coordinateCount = header.getInt(8);
+		int valueCount = header.getInt(12);
+		m_rowCount = header.getLong(16);
+		long dataOffset = header.getLong(24);
+
+		ByteBuffer names = ByteBuffer.allocate((int) dataOffset - HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		XyzTimeSeriesReader.readFully(m_data, names, HEADER_SIZE, m_fileName);
+		m_coordinateNames = XyzTimeSeriesReader.readNames(names, coordinateCount);
+		m_valueNames = XyzTimeSeriesReader.readNames(names, valueCount);
+
+		long stepSize = 8L*m_rowCount*valueCount;
+		m_endOfData = dataOffset + 8L*m_rowCount*coordinateCount;
+		m_stepCount = Math.max(0, (m_index.size() - INDEX_HEADER_SIZE)/INDEX_RECORD_SIZE);
+		if (m_stepCount > 0)
+		{
+			ByteBuffer last = ByteBuffer.allocate(INDEX_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			XyzTimeSeriesReader.readFully(m_index, last, INDEX_HEADER_SIZE + (m_stepCount - 1)*INDEX_RECORD_SIZE, m_fileName);
+			m_lastStep = last.getLong(0);
+			m_endOfData = last.getLong(16) + stepSize;
+		}
+		if (m_index.size() < INDEX_HEADER_SIZE)
+		{
+			writeIndexHeader();
+		}
+		m_indexFile.setLength(INDEX_HEADER_SIZE + m_stepCount*INDEX_RECORD_SIZE);
+		m_dataFile.setLength(m_endOfData);
+	}// end method reopen
+
+	private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		int bytes = buffer.remaining();
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer, position + bytes - buffer.remaining());
+		}
+		return bytes;
+	}
+
+}// end class XyzTimeSeriesWriter